@@ -0,0 +1,129 @@
+package ee.karu.deliveryfeeservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
+import ee.karu.deliveryfeeservice.config.ObservationHistoryProperties;
+import ee.karu.deliveryfeeservice.config.ObservationSnapshotProperties;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import ee.karu.deliveryfeeservice.service.FeeCalculationServiceImpl;
+import ee.karu.deliveryfeeservice.service.FeeMatrix;
+import ee.karu.deliveryfeeservice.service.FeeRulesService;
+import ee.karu.deliveryfeeservice.service.ObservationHistoryFile;
+import ee.karu.deliveryfeeservice.service.ObservationHistoryService;
+import ee.karu.deliveryfeeservice.service.ObservationSnapshotFile;
+import ee.karu.deliveryfeeservice.service.ObservationSnapshotService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.ClassPathResource;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the full {@link FeeCalculationServiceImpl#calculateFee} path backed by a stub {@link StationRepository},
+ * for the latest observation and for an instant within 30 days of hourly observation history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class FeeCalculationBenchmark {
+
+    @Param({"TALLINN", "TARTU"})
+    public String cityName;
+
+    @Param({"CAR", "SCOOTER"})
+    public VehicleType vehicleType;
+
+    private static final long LATEST_TIMESTAMP = 1710162302L;
+    private static final int HISTORY_HOURS = 30 * 24;
+
+    private City city;
+    private ObservationSnapshotService observationSnapshotService;
+    private FeeRulesService feeRulesService;
+    private FeeCalculationServiceImpl feeCalculationService;
+    private Instant historicalInstant;
+
+    @Setup
+    public void setup() {
+        city = City.valueOf(cityName);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        observationSnapshotService = new ObservationSnapshotService(stubStationRepository(), event -> {
+        }, new WeatherDataMetrics(meterRegistry), new ObservationSnapshotFile(new ObservationSnapshotProperties(null), new ObjectMapper()));
+        observationSnapshotService.warmUp();
+        feeRulesService = new FeeRulesService(new FeeRulesProperties(new ClassPathResource("fee-rules.json")),
+                new ObjectMapper(), event -> {
+        });
+        ObservationHistoryService observationHistoryService = new ObservationHistoryService(stubStationRepository(),
+                new ObservationHistoryFile(new ObservationHistoryProperties(null, null)));
+        observationHistoryService.load();
+        feeCalculationService = new FeeCalculationServiceImpl(observationSnapshotService, feeRulesService,
+                observationHistoryService, new FeeMetrics(meterRegistry), event -> {
+        });
+        historicalInstant = Instant.ofEpochSecond(LATEST_TIMESTAMP - 3600L * HISTORY_HOURS / 3 - 1800);
+    }
+
+    @Benchmark
+    public BigDecimal calculateFee() {
+        return feeCalculationService.calculateFee(city, vehicleType);
+    }
+
+    @Benchmark
+    public BigDecimal calculateHistoricalFee() {
+        return feeCalculationService.calculateFee(city, vehicleType, historicalInstant);
+    }
+
+    @Benchmark
+    public FeeMatrix buildFeeMatrix() {
+        return FeeMatrix.of(observationSnapshotService.getSnapshot(), feeRulesService.getRules());
+    }
+
+    /**
+     * Creates a repository that answers the latest observation lookup with a fixed station for every city
+     * and the history lookup with hourly copies of it.
+     */
+    static StationRepository stubStationRepository() {
+        return (StationRepository) Proxy.newProxyInstance(
+                StationRepository.class.getClassLoader(),
+                new Class<?>[]{StationRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getFirstByCityOrderByTimestampDesc")) {
+                        return Optional.of(station((City) args[0], LATEST_TIMESTAMP));
+                    }
+                    if (method.getName().equals("findByCityOrderByCityAscTimestampAsc")) {
+                        return LongStream.range(0, HISTORY_HOURS)
+                                .mapToObj(hour -> station((City) args[0], LATEST_TIMESTAMP - 3600 * (HISTORY_HOURS - 1 - hour)))
+                                .toList();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static StationEntity station(City city, long timestamp) {
+        return StationEntity.builder()
+                .city(city)
+                .wmoCode(26038)
+                .phenomenon("Light snow shower")
+                .airTemperature(-5.3)
+                .windSpeed(2.2)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package ee.karu.deliveryfeeservice.benchmark;
+
+import ee.karu.deliveryfeeservice.DeliveryFeeServiceApplication;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteFrames;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import ee.karu.deliveryfeeservice.service.ObservationSnapshotService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a fee lookup over the REST endpoint, JSON over HTTP/1.1, with the internal binary endpoint over HTTP/2
+ * on the internal port, one quote per call and a batch of quotes on the stream endpoint.
+ * Starts the application on a random port with an in-memory database and scheduled jobs disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Fork(1)
+public class FeeProtocolBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient restClient;
+    private HttpClient binaryClient;
+    private HttpRequest restRequest;
+    private HttpRequest binaryRequest;
+    private HttpRequest binaryBatchRequest;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("fee-protocol-benchmark");
+        context = new SpringApplicationBuilder(DeliveryFeeServiceApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--internal.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:fee-protocol-benchmark;DB_CLOSE_ON_EXIT=FALSE",
+                        "--observation.history.file=" + directory.resolve("observation-history.bin"),
+                        "--cronjob.frequency=-",
+                        "--retention.frequency=-",
+                        "--logging.level.root=WARN");
+        context.getBean(ObservationSnapshotService.class).publish(Arrays.stream(City.values())
+                .map(city -> StationEntity.builder()
+                        .city(city)
+                        .phenomenon("Light snow shower")
+                        .airTemperature(-5.3)
+                        .windSpeed(12.4)
+                        .timestamp(Instant.now().getEpochSecond())
+                        .build())
+                .toList());
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        String internalUrl = "http://localhost:" + context.getEnvironment().getProperty("local.internal.port");
+
+        restClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        restRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/fees/calculate?city="
+                        + URLEncoder.encode(City.TARTU.name(), StandardCharsets.UTF_8) + "&vehicleType=" + VehicleType.BIKE))
+                .GET()
+                .build();
+
+        binaryClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .build();
+        // The client upgrades a cleartext connection to HTTP/2 on a request without a body, later calls reuse it
+        HttpResponse<Void> upgrade = binaryClient.send(HttpRequest.newBuilder(URI.create(internalUrl + "/actuator/health")).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (upgrade.version() != HttpClient.Version.HTTP_2) {
+            throw new IllegalStateException("Expected an HTTP/2 connection, got " + upgrade.version());
+        }
+        binaryRequest = binaryRequest(internalUrl + "/internal/v1/fees/quote", 1);
+        binaryBatchRequest = binaryRequest(internalUrl + "/internal/v1/fees/quote/stream", BATCH_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] restCalculateFee() throws IOException, InterruptedException {
+        return send(restClient, restRequest);
+    }
+
+    @Benchmark
+    public byte[] binaryQuote() throws IOException, InterruptedException {
+        return send(binaryClient, binaryRequest);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public byte[] binaryStreamBatch() throws IOException, InterruptedException {
+        return send(binaryClient, binaryBatchRequest);
+    }
+
+    private static byte[] send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static HttpRequest binaryRequest(String url, int quotes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        City[] cities = City.values();
+        VehicleType[] vehicleTypes = VehicleType.values();
+        for (int i = 0; i < quotes; i++) {
+            FeeQuoteFrames.writeRequest(output, i == 0 ? City.TARTU : cities[i % cities.length],
+                    i == 0 ? VehicleType.BIKE : vehicleTypes[i % vehicleTypes.length], null);
+        }
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", FeeQuoteFrames.MEDIA_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(bytes.toByteArray()))
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package ee.karu.deliveryfeeservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.PhenomenonKeyword;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import ee.karu.deliveryfeeservice.service.CompiledFeeRules;
+import ee.karu.deliveryfeeservice.service.FeeCalculationServiceImpl;
+import ee.karu.deliveryfeeservice.service.FeeRulesService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.ClassPathResource;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the static fee calculation rules of {@link FeeCalculationServiceImpl}
+ * against the default rules file compiled into {@link CompiledFeeRules}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class FeeRulesBenchmark {
+
+    @Param({"TALLINN", "PÄRNU"})
+    public String cityName;
+
+    @Param({"CAR", "BIKE"})
+    public VehicleType vehicleType;
+
+    public double airTemperature = -5.3;
+    public double windSpeed = 12.4;
+    public String phenomenon = "Light snow shower";
+
+    private City city;
+    private CompiledFeeRules compiledFeeRules;
+    private int phenomenonFlags;
+    private StationEntity station;
+
+    @Setup
+    public void setup() {
+        city = City.valueOf(cityName);
+        compiledFeeRules = new FeeRulesService(new FeeRulesProperties(new ClassPathResource("fee-rules.json")),
+                new ObjectMapper(), event -> {
+        }).getRules();
+        phenomenonFlags = PhenomenonKeyword.classify(phenomenon);
+        station = StationEntity.builder()
+                .city(city)
+                .airTemperature(airTemperature)
+                .windSpeed(windSpeed)
+                .phenomenon(phenomenon)
+                .build();
+    }
+
+    @Benchmark
+    public BigDecimal calculateRBF() {
+        return FeeCalculationServiceImpl.calculateRBF(compiledFeeRules, city, vehicleType);
+    }
+
+    @Benchmark
+    public BigDecimal calculateATEF() {
+        return FeeCalculationServiceImpl.calculateATEF(vehicleType, airTemperature);
+    }
+
+    @Benchmark
+    public BigDecimal calculateWSEF() {
+        return FeeCalculationServiceImpl.calculateWSEF(vehicleType, windSpeed);
+    }
+
+    @Benchmark
+    public BigDecimal calculateWPEF() {
+        return FeeCalculationServiceImpl.calculateWPEF(vehicleType, phenomenon);
+    }
+
+    @Benchmark
+    public long evaluateCompiledRules() {
+        return compiledFeeRules.evaluate(city, vehicleType, airTemperature, windSpeed, phenomenonFlags);
+    }
+
+    @Benchmark
+    public FeeQuote quoteCompiledRules() {
+        return compiledFeeRules.quote(city, vehicleType, station);
+    }
+}
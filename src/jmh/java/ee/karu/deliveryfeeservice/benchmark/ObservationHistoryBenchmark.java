@@ -0,0 +1,76 @@
+package ee.karu.deliveryfeeservice.benchmark;
+
+import ee.karu.deliveryfeeservice.config.ObservationHistoryProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.service.ObservationHistoryFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks exporting and memory-mapping back the observation history,
+ * for 30 days of hourly observations of every city and for a million observations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class ObservationHistoryBenchmark {
+
+    private static final String[] PHENOMENA = {"Clear", "Few clouds", "Light snow shower", "Moderate rain", null};
+
+    @Param({"2160", "1000000"})
+    public int rows;
+
+    private Path directory;
+    private List<StationEntity> stations;
+    private ObservationHistoryFile observationHistoryFile;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("observation-history");
+        stations = IntStream.range(0, rows)
+                .mapToObj(row -> StationEntity.builder()
+                        .city(City.values()[row % City.values().length])
+                        .wmoCode(26038)
+                        .phenomenon(PHENOMENA[row % PHENOMENA.length])
+                        .airTemperature(-5.3 + row % 20)
+                        .windSpeed(2.2 + row % 7)
+                        .timestamp(1710162302L + 3600L * (row / City.values().length))
+                        .build())
+                .toList();
+        observationHistoryFile = new ObservationHistoryFile(new ObservationHistoryProperties(directory.resolve("observation-history.bin"), null));
+        observationHistoryFile.write(stations);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("observation-history.bin"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<StationEntity> read() {
+        return observationHistoryFile.read();
+    }
+
+    @Benchmark
+    public void write() {
+        observationHistoryFile.write(stations);
+    }
+}
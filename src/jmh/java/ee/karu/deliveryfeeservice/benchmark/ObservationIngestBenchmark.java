@@ -0,0 +1,101 @@
+package ee.karu.deliveryfeeservice.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import ee.karu.deliveryfeeservice.config.StationRegistryProperties;
+import ee.karu.deliveryfeeservice.dto.ObservationDto;
+import ee.karu.deliveryfeeservice.dto.StationDto;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.service.ObservationParser;
+import ee.karu.deliveryfeeservice.service.StationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the weather ingest steps using the recorded observations.php payload from test resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class ObservationIngestBenchmark {
+
+    static final String OBSERVATIONS_FIXTURE = "/observations.xml";
+
+    private byte[] payload;
+    private XmlMapper xmlMapper;
+    private StationRegistry stationRegistry;
+    private ObservationParser observationParser;
+    private StationDto stationDto;
+
+    @Setup
+    public void setup() throws IOException {
+        payload = readFixture();
+        xmlMapper = XmlMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        stationRegistry = new StationRegistry(new StationRegistryProperties(new ClassPathResource("stations.json")), new ObjectMapper());
+        observationParser = new ObservationParser(stationRegistry);
+        stationDto = new StationDto();
+        stationDto.setStationName("Tallinn-Harku");
+        stationDto.setWmoCode(26038);
+        stationDto.setPhenomenon("Light snow shower");
+        stationDto.setAirTemperature(-5.3);
+        stationDto.setWindSpeed(2.2);
+    }
+
+    @Benchmark
+    public ObservationDto deserializeObservations() throws IOException {
+        return xmlMapper.readValue(payload, ObservationDto.class);
+    }
+
+    /**
+     * The Jackson XML ingest path: binds the whole document, then filters and converts the tracked stations.
+     */
+    @Benchmark
+    public List<StationEntity> deserializeAndConvertObservations() throws IOException {
+        ObservationDto observationDto = xmlMapper.readValue(payload, ObservationDto.class);
+        return observationDto.getStations().stream()
+                .map(station -> station.convertToEntity(stationRegistry))
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    /**
+     * The streaming ingest path used by the weather import.
+     */
+    @Benchmark
+    public List<StationEntity> parseObservations() throws XMLStreamException {
+        return observationParser.parse(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public Optional<StationEntity> convertToEntity() {
+        return stationDto.convertToEntity(stationRegistry);
+    }
+
+    static byte[] readFixture() throws IOException {
+        try (InputStream inputStream = ObservationIngestBenchmark.class.getResourceAsStream(OBSERVATIONS_FIXTURE)) {
+            if (inputStream == null) {
+                throw new IOException("Fixture not found: " + OBSERVATIONS_FIXTURE);
+            }
+            return inputStream.readAllBytes();
+        }
+    }
+}
@@ -2,11 +2,13 @@ package ee.karu.deliveryfeeservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @EnableScheduling
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class DeliveryFeeServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,12 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Fee batches.
+ *
+ * @param maxSize The largest number of items a batch may have, larger batches are rejected with 400.
+ */
+@ConfigurationProperties(prefix = "fee.batch")
+public record FeeBatchProperties(int maxSize) {
+}
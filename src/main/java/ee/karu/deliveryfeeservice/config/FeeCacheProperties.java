@@ -0,0 +1,14 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * HTTP caching of fee quotes.
+ *
+ * @param maxAge How long clients and gateways may use a quote before revalidating it with its entity tag.
+ */
+@ConfigurationProperties(prefix = "fee.cache")
+public record FeeCacheProperties(Duration maxAge) {
+}
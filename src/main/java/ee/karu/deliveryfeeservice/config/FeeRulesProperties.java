@@ -0,0 +1,13 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+
+/**
+ * Location of the delivery fee rules.
+ *
+ * @param location The rules file, checked for modifications according to the fee.rules.reload-interval property.
+ */
+@ConfigurationProperties(prefix = "fee.rules")
+public record FeeRulesProperties(Resource location) {
+}
@@ -0,0 +1,15 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Server-sent event stream of fee changes.
+ *
+ * @param timeout           How long a subscription is kept open before the client has to reconnect.
+ * @param heartbeatInterval How often a comment is sent to every subscriber to keep idle connections open.
+ */
+@ConfigurationProperties(prefix = "fee.stream")
+public record FeeStreamProperties(Duration timeout, Duration heartbeatInterval) {
+}
@@ -0,0 +1,17 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Coordination of the weather import between instances sharing a database.
+ *
+ * @param instanceId      The identity of this instance in the ingest lock, unique per instance.
+ * @param lease           How long the ingest leader holds the lock after an import tick. Should be shorter than the interval
+ *                        of the import job, so another instance takes over at the next tick if the leader is gone.
+ * @param refreshInterval How often the other instances check for a newer snapshot shared by the leader.
+ */
+@ConfigurationProperties(prefix = "ingest")
+public record IngestProperties(String instanceId, Duration lease, Duration refreshInterval) {
+}
@@ -0,0 +1,74 @@
+package ee.karu.deliveryfeeservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Serves the internal fee endpoints under /internal on a separate Tomcat connector, so they can be kept
+ * off the network of the public API. Only the internal connector speaks HTTP/2, also over cleartext connections,
+ * the public connector keeps its own protocol settings. Requests to the internal endpoints on any other port
+ * are answered with 404 Not Found. The port the connector listens on is published as local.internal.port.
+ */
+@Slf4j
+@Configuration
+public class InternalEndpointConfiguration {
+
+    static final String LOCAL_PORT_PROPERTY = "local.internal.port";
+
+    private final Connector connector;
+
+    public InternalEndpointConfiguration(InternalEndpointProperties properties) {
+        this.connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+        this.connector.setPort(properties.port());
+        this.connector.addUpgradeProtocol(new Http2Protocol());
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> internalConnectorCustomizer() {
+        return factory -> factory.addAdditionalTomcatConnectors(connector);
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> internalPortFilter() {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                if (request.getLocalPort() != connector.getLocalPort()) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
+                chain.doFilter(request, response);
+            }
+        });
+        registration.addUrlPatterns("/internal/*");
+        return registration;
+    }
+
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        if (event.getApplicationContext().getEnvironment() instanceof ConfigurableEnvironment environment) {
+            environment.getPropertySources().addFirst(new MapPropertySource("internal.server.ports",
+                    Map.of(LOCAL_PORT_PROPERTY, connector.getLocalPort())));
+        }
+        log.info("Internal fee endpoints listening on port {}", connector.getLocalPort());
+    }
+}
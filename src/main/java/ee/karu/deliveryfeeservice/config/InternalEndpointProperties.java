@@ -0,0 +1,12 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The connector serving the internal fee endpoints, separate from the public API.
+ *
+ * @param port The port of the internal connector, 0 for a free port. The internal endpoints are not served on other ports.
+ */
+@ConfigurationProperties(prefix = "internal")
+public record InternalEndpointProperties(int port) {
+}
@@ -0,0 +1,15 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Columnar export of the observation history.
+ *
+ * @param file            The file the history is exported to and loaded from on startup, no export is kept if not set.
+ * @param exportFrequency The cron expression of the scheduled export, the history is also exported on shutdown.
+ */
+@ConfigurationProperties(prefix = "observation.history")
+public record ObservationHistoryProperties(Path file, String exportFrequency) {
+}
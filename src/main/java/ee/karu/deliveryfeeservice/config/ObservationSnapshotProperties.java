@@ -0,0 +1,14 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Local copy of the latest observation snapshot.
+ *
+ * @param file The file the latest snapshot is written to and preloaded from on startup, no copy is kept if not set.
+ */
+@ConfigurationProperties(prefix = "observation.snapshot")
+public record ObservationSnapshotProperties(Path file) {
+}
@@ -0,0 +1,19 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Selection of the observation source.
+ *
+ * @param type        The source: "http" for the weather service, "file" for the newest document written to the directory,
+ *                    or "replay" for the documents of the directory replayed in timestamp order.
+ * @param directory   The directory of recorded observation XML documents, used by the file and replay sources.
+ * @param replaySpeed How many times faster than real time recorded observations are replayed.
+ * @param replayLoop  Whether the replay starts over after the last recorded observation,
+ *                    with timestamps shifted past the previous round.
+ */
+@ConfigurationProperties(prefix = "weather.source")
+public record ObservationSourceProperties(String type, Path directory, double replaySpeed, boolean replayLoop) {
+}
@@ -2,12 +2,14 @@ package ee.karu.deliveryfeeservice.config;
 
 import ee.karu.deliveryfeeservice.model.City;
 import ee.karu.deliveryfeeservice.model.VehicleType;
+import ee.karu.deliveryfeeservice.service.StationRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
 import org.springframework.web.client.RestClient;
 
@@ -18,8 +20,13 @@ import static java.util.stream.Collectors.joining;
 public class RestConfiguration {
 
     @Bean
-    public RestClient restClient() {
+    public RestClient restClient(WeatherProperties weatherProperties) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(weatherProperties.connectTimeout());
+        requestFactory.setReadTimeout(weatherProperties.readTimeout());
+
         return RestClient.builder()
+                .requestFactory(requestFactory)
                 .messageConverters(httpMessageConverters -> httpMessageConverters.add(new MappingJackson2XmlHttpMessageConverter()))
                 .requestInterceptor((HttpRequest request, byte[] body, ClientHttpRequestExecution execution) -> {
                     logRequest(request);
@@ -40,12 +47,16 @@ public class RestConfiguration {
         log.debug(message);
     }
 
+    /**
+     * Resolves the city through the station registry. An unknown city converts to {@code null}
+     * and is rejected as a missing parameter, without an exception thrown for every invalid request.
+     */
     @Bean
-    public Converter<String, City> cityConverter() {
+    public Converter<String, City> cityConverter(StationRegistry stationRegistry) {
         return new Converter<>() {
             @Override
             public City convert(String source) {
-                return City.valueOf(source.trim().toUpperCase());
+                return stationRegistry.findCity(source).orElse(null);
             }
         };
     }
@@ -0,0 +1,15 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retention of the observations stored in the station table.
+ *
+ * @param horizon   Observations older than this are deleted. The latest observation of every city is always kept.
+ * @param batchSize The maximum number of rows deleted in one transaction.
+ */
+@ConfigurationProperties(prefix = "retention")
+public record RetentionProperties(Duration horizon, int batchSize) {
+}
@@ -0,0 +1,13 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+
+/**
+ * Location of the station registry.
+ *
+ * @param location The file listing the cities and the weather stations whose observations are used for them, read on startup.
+ */
+@ConfigurationProperties(prefix = "weather.stations")
+public record StationRegistryProperties(Resource location) {
+}
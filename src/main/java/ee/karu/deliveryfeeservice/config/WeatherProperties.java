@@ -0,0 +1,28 @@
+package ee.karu.deliveryfeeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connection settings of the weather service.
+ *
+ * @param url            The URL of the observations XML document.
+ * @param connectTimeout The maximum time to establish a connection.
+ * @param readTimeout    The maximum time to wait for the response.
+ * @param retry          Retry settings of failed requests.
+ */
+@ConfigurationProperties(prefix = "weather")
+public record WeatherProperties(String url, Duration connectTimeout, Duration readTimeout, Retry retry) {
+
+    /**
+     * Retries use exponential backoff with full jitter: the delay before attempt n is a random duration
+     * between zero and {@code min(maxBackoff, initialBackoff * 2^(n - 1))}.
+     *
+     * @param maxAttempts    The maximum number of attempts, including the first one.
+     * @param initialBackoff The backoff cap of the first retry.
+     * @param maxBackoff     The upper bound of the backoff cap.
+     */
+    public record Retry(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+    }
+}
@@ -1,29 +1,117 @@
 package ee.karu.deliveryfeeservice.controller;
 
+import ee.karu.deliveryfeeservice.config.FeeBatchProperties;
+import ee.karu.deliveryfeeservice.config.FeeCacheProperties;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteRequestDto;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteResultDto;
+import ee.karu.deliveryfeeservice.dto.ResponseErrorDto;
+import ee.karu.deliveryfeeservice.exception.NoSuchObservationDataException;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
 import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
 import ee.karu.deliveryfeeservice.model.VehicleType;
 import ee.karu.deliveryfeeservice.service.FeeCalculationService;
+import ee.karu.deliveryfeeservice.service.FeeStreamService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/fees")
 public class FeeController {
-    public FeeController(FeeCalculationService feeCalculationService) {
+    public FeeController(FeeCalculationService feeCalculationService, FeeStreamService feeStreamService, FeeMetrics feeMetrics,
+                         FeeCacheProperties feeCacheProperties, FeeBatchProperties feeBatchProperties) {
         this.feeCalculationService = feeCalculationService;
+        this.feeStreamService = feeStreamService;
+        this.feeMetrics = feeMetrics;
+        this.cacheControl = CacheControl.maxAge(feeCacheProperties.maxAge()).cachePublic();
+        this.maxBatchSize = feeBatchProperties.maxSize();
     }
 
     private final FeeCalculationService feeCalculationService;
+    private final FeeStreamService feeStreamService;
+    private final FeeMetrics feeMetrics;
+    private final CacheControl cacheControl;
+    private final int maxBatchSize;
 
+    /**
+     * Responds with the total delivery fee, or with a 409 or 404 error body when the vehicle type is forbidden
+     * or there is no observation data. Forbidden responses are counted in a metric instead of being logged.
+     * Current quotes carry an ETag derived from the city's observation timestamp and the fee rules version,
+     * and a request whose If-None-Match matches it is answered with 304 without looking up the quote.
+     * If-None-Match is evaluated by {@link ServletWebRequest#checkNotModified(String)}, which compares weakly
+     * and ignores a malformed header.
+     * The ETag is read before the quote, so a quote is never tagged as newer than it is.
+     * If an instant is given, the fee is calculated against the observation in force at that instant.
+     */
     @GetMapping("/calculate")
-    public BigDecimal calculateFee(@RequestParam City city, @RequestParam VehicleType vehicleType) {
-        return feeCalculationService.calculateFee(city, vehicleType);
+    public ResponseEntity<?> calculateFee(@RequestParam City city, @RequestParam VehicleType vehicleType,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at,
+                                          ServletWebRequest request) {
+        if (at != null) {
+            return toResponse(city, vehicleType, feeCalculationService.quoteFee(city, vehicleType, at), HttpHeaders.EMPTY);
+        }
+        String eTag = feeCalculationService.getQuoteETag(city);
+        if (request.checkNotModified(eTag)) {
+            // The status and ETag are already set on the response
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+            return null;
+        }
+        HttpHeaders cacheHeaders = new HttpHeaders();
+        cacheHeaders.setETag(eTag);
+        cacheHeaders.setCacheControl(cacheControl);
+        return toResponse(city, vehicleType, feeCalculationService.quoteFee(city, vehicleType), cacheHeaders);
+    }
+
+    /**
+     * Streams the fee table of the city as server-sent events named "fees", starting with the current table.
+     * A new table is sent only when a fee outcome of the city changes, with the quote ETag as the event id.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFees(@RequestParam City city) {
+        return feeStreamService.subscribe(city);
+    }
+
+    private ResponseEntity<?> toResponse(City city, VehicleType vehicleType, FeeQuote quote, HttpHeaders cacheHeaders) {
+        if (quote instanceof FeeQuote.Fee fee) {
+            return ResponseEntity.ok().headers(cacheHeaders).body(fee.amount());
+        }
+        if (quote instanceof FeeQuote.Forbidden forbidden) {
+            feeMetrics.recordForbidden(city, vehicleType);
+            return ResponseEntity.status(HttpStatus.CONFLICT).headers(cacheHeaders)
+                    .body(ResponseErrorDto.of(forbidden.reason(), HttpStatus.CONFLICT.value()));
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).headers(cacheHeaders)
+                .body(ResponseErrorDto.of(NoSuchObservationDataException.MESSAGE, HttpStatus.NOT_FOUND.value()));
+    }
+
+    /**
+     * Responds with a result for every item, or with 400 if the batch has more than fee.batch.max-size items.
+     * Unknown cities and vehicle types are reported in the results of their items.
+     */
+    @PostMapping("/calculate/batch")
+    public ResponseEntity<?> calculateFees(@RequestBody List<FeeQuoteRequestDto> requests) {
+        if (requests.size() > maxBatchSize) {
+            return ResponseEntity.badRequest()
+                    .body(ResponseErrorDto.of("A batch may have at most " + maxBatchSize + " items", HttpStatus.BAD_REQUEST.value()));
+        }
+        return ResponseEntity.ok(feeCalculationService.calculateFees(requests));
     }
 
 }
@@ -0,0 +1,106 @@
+package ee.karu.deliveryfeeservice.controller;
+
+import ee.karu.deliveryfeeservice.dto.FeeQuoteFrames;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.service.FeeCalculationService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Internal fee lookups in the compact binary protocol of {@link FeeQuoteFrames}, for services that quote fees
+ * at a high rate and would otherwise spend most of a call on parsing query parameters and writing JSON.
+ * Backed by the same {@link FeeCalculationService} and metrics as the REST endpoints.
+ * Served only on the internal port, over HTTP/2 so many quotes share one connection,
+ * see {@link ee.karu.deliveryfeeservice.config.InternalEndpointConfiguration}.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/internal/v1/fees")
+public class InternalFeeController {
+
+    private final FeeCalculationService feeCalculationService;
+    private final FeeMetrics feeMetrics;
+
+    public InternalFeeController(FeeCalculationService feeCalculationService, FeeMetrics feeMetrics) {
+        this.feeCalculationService = feeCalculationService;
+        this.feeMetrics = feeMetrics;
+    }
+
+    /**
+     * Quotes a single request frame and responds with its result frame, or with 400 if the body is not one request frame.
+     */
+    @PostMapping(path = "/quote", consumes = FeeQuoteFrames.MEDIA_TYPE, produces = FeeQuoteFrames.MEDIA_TYPE)
+    public ResponseEntity<byte[]> quote(@RequestBody byte[] body) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(body));
+        FeeQuoteFrames.Request request;
+        try {
+            request = FeeQuoteFrames.readRequest(input);
+        } catch (IOException e) {
+            request = null;
+        }
+        if (request == null || input.available() > 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream(5);
+        writeResult(new DataOutputStream(result), request);
+        return ResponseEntity.ok(result.toByteArray());
+    }
+
+    /**
+     * Quotes a stream of request frames and streams a result frame for each of them, in order.
+     * Results are flushed whenever no further request is buffered, so a client streaming requests receives results
+     * while it is still sending, and a batch sent at once is answered in few writes.
+     * A truncated final frame ends the stream.
+     */
+    @PostMapping(path = "/quote/stream", consumes = FeeQuoteFrames.MEDIA_TYPE)
+    public void quoteStream(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(FeeQuoteFrames.MEDIA_TYPE);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(body));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(response.getOutputStream()));
+        int quoted = 0;
+        try {
+            FeeQuoteFrames.Request request;
+            while ((request = FeeQuoteFrames.readRequest(input)) != null) {
+                writeResult(output, request);
+                quoted++;
+                if (input.available() == 0) {
+                    output.flush();
+                }
+            }
+        } catch (EOFException e) {
+            log.debug("Fee quote stream ended within a frame after {} quotes", quoted);
+        }
+        output.flush();
+    }
+
+    private void writeResult(DataOutputStream output, FeeQuoteFrames.Request request) throws IOException {
+        if (!request.isValid()) {
+            FeeQuoteFrames.writeInvalid(output);
+            return;
+        }
+        FeeQuote quote = request.at() == null
+                ? feeCalculationService.quoteFee(request.city(), request.vehicleType())
+                : feeCalculationService.quoteFee(request.city(), request.vehicleType(), request.at());
+        if (quote instanceof FeeQuote.Forbidden) {
+            feeMetrics.recordForbidden(request.city(), request.vehicleType());
+        }
+        FeeQuoteFrames.writeResult(output, quote);
+    }
+}
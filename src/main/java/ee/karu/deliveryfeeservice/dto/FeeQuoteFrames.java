@@ -0,0 +1,120 @@
+package ee.karu.deliveryfeeservice.dto;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Compact binary protocol of the internal fee endpoint, for services that quote fees at a high rate.
+ * Requests and results are sequences of frames, all numbers are big-endian.
+ * <p>
+ * A request frame has 4 bytes, or 12 bytes if it prices at an instant:
+ * <ul>
+ *     <li>city id as an unsigned short, see the ids in the station registry,</li>
+ *     <li>vehicle type ordinal as a byte: 0 car, 1 scooter, 2 bike,</li>
+ *     <li>flags as a byte, bit 0 set if an instant follows,</li>
+ *     <li>the instant to price at as long epoch seconds, only if the flag is set.</li>
+ * </ul>
+ * A result frame has a status byte, followed by the fee as an int of euro cents if the status is {@link #FEE}.
+ * Results are returned in the order of the requests.
+ */
+public final class FeeQuoteFrames {
+
+    public static final String MEDIA_TYPE = "application/x-delivery-fee-quote";
+
+    public static final byte FEE = 0;
+    public static final byte FORBIDDEN = 1;
+    public static final byte NO_DATA = 2;
+    public static final byte INVALID = 3;
+
+    private static final int HAS_INSTANT = 1;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private FeeQuoteFrames() {
+    }
+
+    /**
+     * A decoded request frame. City and vehicle type are null if the ids are unknown or the instant is out of range,
+     * the instant if none was given.
+     */
+    public record Request(City city, VehicleType vehicleType, Instant at) {
+
+        public boolean isValid() {
+            return city != null && vehicleType != null;
+        }
+    }
+
+    /**
+     * A decoded result frame.
+     *
+     * @param status One of {@link #FEE}, {@link #FORBIDDEN}, {@link #NO_DATA} and {@link #INVALID}.
+     * @param cents  The fee in euro cents, 0 unless the status is {@link #FEE}.
+     */
+    public record Result(byte status, int cents) {
+    }
+
+    public static void writeRequest(DataOutput output, City city, VehicleType vehicleType, Instant at) throws IOException {
+        output.writeShort(city.id());
+        output.writeByte(vehicleType.ordinal());
+        output.writeByte(at == null ? 0 : HAS_INSTANT);
+        if (at != null) {
+            output.writeLong(at.getEpochSecond());
+        }
+    }
+
+    /**
+     * @return The request, or null if the input ended before a new frame.
+     * @throws EOFException If the input ended within a frame.
+     */
+    public static Request readRequest(DataInput input) throws IOException {
+        int first;
+        try {
+            first = input.readUnsignedByte();
+        } catch (EOFException e) {
+            return null;
+        }
+        int cityId = first << 8 | input.readUnsignedByte();
+        int vehicleType = input.readUnsignedByte();
+        int flags = input.readUnsignedByte();
+        Instant at = null;
+        if ((flags & HAS_INSTANT) != 0) {
+            long epochSecond = input.readLong();
+            if (epochSecond < Instant.MIN.getEpochSecond() || epochSecond > Instant.MAX.getEpochSecond()) {
+                return new Request(null, null, null);
+            }
+            at = Instant.ofEpochSecond(epochSecond);
+        }
+        return new Request(City.findById(cityId).orElse(null),
+                vehicleType < VEHICLE_TYPES.length ? VEHICLE_TYPES[vehicleType] : null, at);
+    }
+
+    /**
+     * Writes the result frame of the quote. Fees of compiled fee rules always fit the int of euro cents,
+     * see {@link ee.karu.deliveryfeeservice.service.CompiledFeeRules#MAX_FEE_CENTS}.
+     */
+    public static void writeResult(DataOutput output, FeeQuote quote) throws IOException {
+        if (quote instanceof FeeQuote.Fee fee) {
+            output.writeByte(FEE);
+            output.writeInt(Math.toIntExact(fee.cents()));
+        } else if (quote instanceof FeeQuote.Forbidden) {
+            output.writeByte(FORBIDDEN);
+        } else {
+            output.writeByte(NO_DATA);
+        }
+    }
+
+    public static void writeInvalid(DataOutput output) throws IOException {
+        output.writeByte(INVALID);
+    }
+
+    public static Result readResult(DataInput input) throws IOException {
+        byte status = input.readByte();
+        return new Result(status, status == FEE ? input.readInt() : 0);
+    }
+}
@@ -0,0 +1,45 @@
+package ee.karu.deliveryfeeservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * An item of a fee batch. The city is kept as requested and resolved per item with {@link #findCity()},
+ * and an unknown vehicle type is read as null, so an invalid item is reported in its own result
+ * instead of failing the whole batch.
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeQuoteRequestDto {
+    private String city;
+    @JsonFormat(with = JsonFormat.Feature.READ_UNKNOWN_ENUM_VALUES_AS_NULL)
+    private VehicleType vehicleType;
+    private Instant at;
+
+    public static FeeQuoteRequestDto of(City city, VehicleType vehicleType) {
+        return of(city, vehicleType, null);
+    }
+
+    public static FeeQuoteRequestDto of(City city, VehicleType vehicleType, Instant at) {
+        return new FeeQuoteRequestDto(city == null ? null : city.name(), vehicleType, at);
+    }
+
+    /**
+     * @return The requested city, or empty if none was given or no city is registered with the name.
+     */
+    public Optional<City> findCity() {
+        return City.find(city);
+    }
+}
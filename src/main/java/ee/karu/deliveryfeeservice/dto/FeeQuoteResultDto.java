@@ -0,0 +1,49 @@
+package ee.karu.deliveryfeeservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ee.karu.deliveryfeeservice.exception.NoSuchObservationDataException;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Getter
+@ToString
+@AllArgsConstructor(staticName = "of")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeeQuoteResultDto {
+    private static final String INVALID_REQUEST_MESSAGE = "A registered city and a vehicle type are required";
+
+    private String city;
+    private VehicleType vehicleType;
+    private Instant at;
+    private BigDecimal fee;
+    private String message;
+    private int status;
+
+    /**
+     * Maps the fee quote to a batch result item, using the same status codes as the single fee endpoint.
+     *
+     * @param request The requested city and vehicle type, echoed as requested.
+     * @param quote   The fee quote for the request.
+     * @return The batch result item.
+     */
+    public static FeeQuoteResultDto of(FeeQuoteRequestDto request, FeeQuote quote) {
+        if (quote instanceof FeeQuote.Fee fee) {
+            return of(request.getCity(), request.getVehicleType(), request.getAt(), fee.amount(), null, HttpStatus.OK.value());
+        }
+        if (quote instanceof FeeQuote.Forbidden forbidden) {
+            return of(request.getCity(), request.getVehicleType(), request.getAt(), null, forbidden.reason(), HttpStatus.CONFLICT.value());
+        }
+        return of(request.getCity(), request.getVehicleType(), request.getAt(), null, NoSuchObservationDataException.MESSAGE, HttpStatus.NOT_FOUND.value());
+    }
+
+    public static FeeQuoteResultDto invalid(FeeQuoteRequestDto request) {
+        return of(request.getCity(), request.getVehicleType(), request.getAt(), null, INVALID_REQUEST_MESSAGE, HttpStatus.BAD_REQUEST.value());
+    }
+}
@@ -0,0 +1,19 @@
+package ee.karu.deliveryfeeservice.dto;
+
+import ee.karu.deliveryfeeservice.model.City;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * The fee outcome of every vehicle type in a city.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(staticName = "of")
+public class FeeTableDto {
+    private City city;
+    private List<FeeQuoteResultDto> fees;
+}
@@ -1,12 +1,14 @@
 package ee.karu.deliveryfeeservice.dto;
 
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
-import ee.karu.deliveryfeeservice.model.City;
 import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.service.StationRegistry;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.util.Optional;
+
 @Getter
 @Setter
 @ToString
@@ -27,17 +29,24 @@ public class StationDto {
     @JacksonXmlProperty(localName = "windspeed")
     private double windSpeed;
 
-    public StationEntity convertToEntity() {
-
-        StationEntity stationEntity = new StationEntity();
-
-        stationEntity.setCity(City.getCityForStationName(stationName));
-        stationEntity.setWmoCode(wmoCode);
-        stationEntity.setPhenomenon(phenomenon);
-        stationEntity.setAirTemperature(airTemperature);
-        stationEntity.setWindSpeed(windSpeed);
-
-        return stationEntity;
+    /**
+     * @param stationRegistry The registry the station is looked up in, by name and then by WMO code.
+     * @return The station entity, or empty if the station is not tracked.
+     */
+    public Optional<StationEntity> convertToEntity(StationRegistry stationRegistry) {
+        return stationRegistry.findByStationName(stationName)
+                .or(() -> stationRegistry.findByWmoCode(wmoCode))
+                .map(city -> {
+                    StationEntity stationEntity = new StationEntity();
+
+                    stationEntity.setCity(city);
+                    stationEntity.setWmoCode(wmoCode);
+                    stationEntity.setPhenomenon(phenomenon);
+                    stationEntity.setAirTemperature(airTemperature);
+                    stationEntity.setWindSpeed(windSpeed);
+
+                    return stationEntity;
+                });
     }
 }
 
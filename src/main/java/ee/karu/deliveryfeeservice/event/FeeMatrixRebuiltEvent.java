@@ -0,0 +1,11 @@
+package ee.karu.deliveryfeeservice.event;
+
+import ee.karu.deliveryfeeservice.service.FeeMatrix;
+
+/**
+ * Published after the fee matrix has been rebuilt for a new observation snapshot or new fee rules.
+ *
+ * @param feeMatrix The fee matrix that is now used for quotes.
+ */
+public record FeeMatrixRebuiltEvent(FeeMatrix feeMatrix) {
+}
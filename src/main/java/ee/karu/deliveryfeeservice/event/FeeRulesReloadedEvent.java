@@ -0,0 +1,11 @@
+package ee.karu.deliveryfeeservice.event;
+
+import ee.karu.deliveryfeeservice.service.CompiledFeeRules;
+
+/**
+ * Published after a new set of fee rules has replaced the previous one.
+ *
+ * @param rules The rules that are now in effect.
+ */
+public record FeeRulesReloadedEvent(CompiledFeeRules rules) {
+}
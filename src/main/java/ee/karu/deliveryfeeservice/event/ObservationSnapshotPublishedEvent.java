@@ -0,0 +1,11 @@
+package ee.karu.deliveryfeeservice.event;
+
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+
+/**
+ * Published after a new observation snapshot has replaced the previous one.
+ *
+ * @param snapshot The snapshot that is now current.
+ */
+public record ObservationSnapshotPublishedEvent(ObservationSnapshot snapshot) {
+}
@@ -1,7 +1,9 @@
 package ee.karu.deliveryfeeservice.exception;
 
 public class NoSuchObservationDataException extends RuntimeException {
+    public static final String MESSAGE = "Observation data not found";
+
     public NoSuchObservationDataException() {
-        super("Observation data not found");
+        super(MESSAGE);
     }
 }
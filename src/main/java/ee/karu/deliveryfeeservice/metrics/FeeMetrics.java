@@ -0,0 +1,79 @@
+package ee.karu.deliveryfeeservice.metrics;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the delivery fee calculation.
+ * Meters are registered up front for every city and vehicle type, so recording does not allocate tags.
+ */
+@Component
+@DependsOn("stationRegistry")
+public class FeeMetrics {
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+    private static final String[] OUTCOMES = {"fee", "forbidden", "no_data"};
+
+    private final Counter[] forbiddenCounters;
+    private final Timer[] calculationTimers;
+
+    public FeeMetrics(MeterRegistry meterRegistry) {
+        City[] cities = City.values();
+        forbiddenCounters = new Counter[City.idBound() * VEHICLE_TYPES.length];
+        calculationTimers = new Timer[forbiddenCounters.length * OUTCOMES.length];
+        for (City city : cities) {
+            for (VehicleType vehicleType : VEHICLE_TYPES) {
+                int index = index(city, vehicleType);
+                forbiddenCounters[index] = Counter.builder("delivery.fee.forbidden")
+                        .description("Fee requests rejected because the vehicle type is forbidden")
+                        .tag("city", city.name())
+                        .tag("vehicle.type", vehicleType.name())
+                        .register(meterRegistry);
+                for (int outcome = 0; outcome < OUTCOMES.length; outcome++) {
+                    calculationTimers[index * OUTCOMES.length + outcome] = Timer.builder("delivery.fee.calculation")
+                            .description("Duration of delivery fee calculations")
+                            .tag("city", city.name())
+                            .tag("vehicle.type", vehicleType.name())
+                            .tag("outcome", OUTCOMES[outcome])
+                            .register(meterRegistry);
+                }
+            }
+        }
+    }
+
+    public void recordForbidden(City city, VehicleType vehicleType) {
+        forbiddenCounters[index(city, vehicleType)].increment();
+    }
+
+    /**
+     * Records the duration of a fee calculation, tagged by city, vehicle type and outcome.
+     *
+     * @param city          The given city.
+     * @param vehicleType   The type of vehicle.
+     * @param quote         The calculated fee outcome.
+     * @param durationNanos The duration of the calculation in nanoseconds.
+     */
+    public void recordCalculation(City city, VehicleType vehicleType, FeeQuote quote, long durationNanos) {
+        calculationTimers[index(city, vehicleType) * OUTCOMES.length + outcomeIndex(quote)]
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static int index(City city, VehicleType vehicleType) {
+        return city.id() * VEHICLE_TYPES.length + vehicleType.ordinal();
+    }
+
+    private static int outcomeIndex(FeeQuote quote) {
+        if (quote instanceof FeeQuote.Fee) {
+            return 0;
+        }
+        return quote instanceof FeeQuote.Forbidden ? 1 : 2;
+    }
+}
@@ -0,0 +1,33 @@
+package ee.karu.deliveryfeeservice.metrics;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.service.FeeStreamService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges for the subscribers of the fee change stream.
+ */
+@Component
+@DependsOn("stationRegistry")
+public class FeeStreamMetrics implements MeterBinder {
+
+    private final FeeStreamService feeStreamService;
+
+    public FeeStreamMetrics(FeeStreamService feeStreamService) {
+        this.feeStreamService = feeStreamService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (City city : City.values()) {
+            Gauge.builder("delivery.fee.stream.subscribers", feeStreamService, service -> service.getSubscriberCount(city))
+                    .description("Open fee change stream subscriptions of the city")
+                    .tag("city", city.name())
+                    .register(registry);
+        }
+    }
+}
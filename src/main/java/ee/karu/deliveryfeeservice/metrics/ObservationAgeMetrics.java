@@ -0,0 +1,47 @@
+package ee.karu.deliveryfeeservice.metrics;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.service.ObservationSnapshotService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Gauges for the freshness of the observation data used for fee calculation.
+ */
+@Component
+@DependsOn("stationRegistry")
+public class ObservationAgeMetrics implements MeterBinder {
+
+    private final ObservationSnapshotService observationSnapshotService;
+
+    public ObservationAgeMetrics(ObservationSnapshotService observationSnapshotService) {
+        this.observationSnapshotService = observationSnapshotService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (City city : City.values()) {
+            Gauge.builder("weather.observation.age", observationSnapshotService, service -> getObservationAge(service, city))
+                    .description("Seconds since the latest observation of the city was made, NaN if there is none")
+                    .baseUnit("seconds")
+                    .tag("city", city.name())
+                    .register(registry);
+        }
+        Gauge.builder("weather.observation.snapshot.age", observationSnapshotService,
+                        service -> service.getSnapshotAge().toMillis() / 1000.0)
+                .description("Seconds since the observation snapshot was last published")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    private static double getObservationAge(ObservationSnapshotService service, City city) {
+        return service.getSnapshot().getStation(city)
+                .map(station -> (double) (Instant.now().getEpochSecond() - station.getTimestamp()))
+                .orElse(Double.NaN);
+    }
+}
@@ -0,0 +1,104 @@
+package ee.karu.deliveryfeeservice.metrics;
+
+import ee.karu.deliveryfeeservice.model.City;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the weather data import and of the observation lookups from the database.
+ */
+@Component
+@DependsOn("stationRegistry")
+public class WeatherDataMetrics {
+
+    private final Timer fetchTimer;
+    private final Timer parseTimer;
+    private final Counter stationsSavedCounter;
+    private final Counter failureCounter;
+    private final Counter notModifiedCounter;
+    private final Counter stationsUnchangedCounter;
+    private final Timer[] stageTimers = new Timer[IngestStage.values().length];
+    private final Timer[] lookupTimers = new Timer[City.idBound()];
+
+    public WeatherDataMetrics(MeterRegistry meterRegistry) {
+        fetchTimer = Timer.builder("weather.ingest.fetch")
+                .description("Duration of fetching observations from the weather service")
+                .register(meterRegistry);
+        parseTimer = Timer.builder("weather.ingest.parse")
+                .description("Duration of parsing the fetched observations")
+                .register(meterRegistry);
+        stationsSavedCounter = Counter.builder("weather.ingest.stations.saved")
+                .description("Station observations saved to the database")
+                .register(meterRegistry);
+        failureCounter = Counter.builder("weather.ingest.failures")
+                .description("Failed weather data imports")
+                .register(meterRegistry);
+        notModifiedCounter = Counter.builder("weather.ingest.not.modified")
+                .description("Weather data imports skipped because the observations have not been modified")
+                .register(meterRegistry);
+        stationsUnchangedCounter = Counter.builder("weather.ingest.stations.unchanged")
+                .description("Fetched station observations dropped because they are not newer than the last stored ones")
+                .register(meterRegistry);
+        for (IngestStage stage : IngestStage.values()) {
+            stageTimers[stage.ordinal()] = Timer.builder("weather.ingest.stage")
+                    .description("Duration of a stage of the weather data import")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        for (City city : City.values()) {
+            lookupTimers[city.id()] = Timer.builder("weather.observation.lookup")
+                    .description("Duration of the latest observation lookup from the database")
+                    .tag("city", city.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    public void recordFetch(long durationNanos) {
+        fetchTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordParse(long durationNanos) {
+        parseTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStationsSaved(int count) {
+        stationsSavedCounter.increment(count);
+    }
+
+    public void recordFailure() {
+        failureCounter.increment();
+    }
+
+    public void recordNotModified() {
+        notModifiedCounter.increment();
+    }
+
+    public void recordStationsUnchanged(int count) {
+        stationsUnchangedCounter.increment(count);
+    }
+
+    public void recordStage(IngestStage stage, long durationNanos) {
+        stageTimers[stage.ordinal()].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLookup(City city, long durationNanos) {
+        lookupTimers[city.id()].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stages of the weather data import, timed in the weather.ingest.stage timer.
+     * The fetch stage includes parsing, which the sources also time separately in weather.ingest.parse.
+     */
+    public enum IngestStage {
+        FETCH,
+        DEDUPE,
+        PERSIST,
+        PUBLISH
+    }
+}
@@ -1,33 +1,179 @@
 package ee.karu.deliveryfeeservice.model;
 
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
 
 import java.util.Arrays;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
-import static java.util.stream.Collectors.toSet;
+/**
+ * City where delivery fees are calculated. Besides the built-in cities, cities are registered at startup
+ * from the station registry, see {@code StationRegistry}.
+ * There is one instance per city, so cities are compared by identity. The id is a small number that is stable
+ * across restarts, it is stored in the station table and indexes the per-city arrays of fee lookups.
+ * <p>
+ * The registry is frozen once the station registry is loaded, or as soon as the cities or the id bound are read,
+ * as per-city arrays are sized from them. Registering a new city afterwards fails instead of leaving those arrays too short.
+ */
+public final class City implements Comparable<City> {
 
-@Getter
-@RequiredArgsConstructor
-public enum City {
-    TALLINN ("Tallinn-Harku"),
-    TARTU("Tartu-Tõravere"),
-    PÄRNU("Pärnu");
-    public final static Set<String> STATION_NAMES = getStationNames();
+    /**
+     * The largest id a city can be registered with.
+     */
+    public static final int MAX_ID = 4095;
 
-    private final String stationName;
+    private static volatile City[] byId = new City[0];
+    private static volatile City[] values = new City[0];
+    private static volatile Map<String, City> byName = Map.of();
+    private static volatile boolean frozen;
 
+    public static final City TALLINN = register(0, "TALLINN");
+    public static final City TARTU = register(1, "TARTU");
+    public static final City PÄRNU = register(2, "PÄRNU");
 
-    public static City getCityForStationName(String stationName) {
-        return Arrays.stream(City.values())
-                .filter(city -> city.stationName.equals(stationName))
-                .findFirst()
-                .orElseThrow();
+    private final int id;
+    private final String name;
+
+    private City(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Registers a city, or returns the city if it is already registered with the same id.
+     *
+     * @param id   The id of the city, between 0 and {@link #MAX_ID}.
+     * @param name The name of the city in upper case.
+     * @return The registered city.
+     * @throws IllegalArgumentException If the id or name is invalid, or either is already registered to another city.
+     * @throws IllegalStateException    If the city is new and the registry is frozen.
+     */
+    public static synchronized City register(int id, String name) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("City id must be between 0 and " + MAX_ID + ": " + id);
+        }
+        if (name == null || name.isBlank() || !name.equals(name.toUpperCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("City name must be a non-blank upper case name: " + name);
+        }
+        City existing = byName.get(name);
+        if (existing != null) {
+            if (existing.id != id) {
+                throw new IllegalArgumentException("City " + name + " is already registered with id " + existing.id);
+            }
+            return existing;
+        }
+        if (id < byId.length && byId[id] != null) {
+            throw new IllegalArgumentException("City id " + id + " is already registered to " + byId[id]);
+        }
+        if (frozen) {
+            throw new IllegalStateException("City " + name + " must be registered by the station registry "
+                    + "before cities are read, the city registry is frozen");
+        }
+        City city = new City(id, name);
+        City[] newById = Arrays.copyOf(byId, Math.max(byId.length, id + 1));
+        newById[id] = city;
+        Map<String, City> newByName = new HashMap<>(byName);
+        newByName.put(name, city);
+        byId = newById;
+        values = Arrays.stream(newById).filter(registered -> registered != null).toArray(City[]::new);
+        byName = Map.copyOf(newByName);
+        return city;
+    }
+
+    /**
+     * Freezes the registry, so no further cities can be registered.
+     */
+    public static synchronized void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Freezes the registry.
+     *
+     * @return The registered cities in id order.
+     */
+    public static City[] values() {
+        if (!frozen) {
+            freeze();
+        }
+        return values.clone();
+    }
+
+    /**
+     * Freezes the registry.
+     *
+     * @return One more than the largest registered id, the length of arrays indexed by city id.
+     */
+    public static int idBound() {
+        if (!frozen) {
+            freeze();
+        }
+        return byId.length;
+    }
+
+    /**
+     * Finds a registered city by name without throwing if there is none.
+     *
+     * @param name The name of the city.
+     * @return The city, or empty if no city is registered with the name.
+     */
+    public static Optional<City> find(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(byName.get(name));
     }
 
-    private static Set<String> getStationNames() {
-        return Arrays.stream(City.values()).map(City::getStationName).collect(toSet());
+    /**
+     * @param name The name of the city.
+     * @return The registered city.
+     * @throws IllegalArgumentException If no city is registered with the name.
+     */
+    @JsonCreator
+    public static City valueOf(String name) {
+        return find(name).orElseThrow(() -> new IllegalArgumentException("No city registered with name " + name));
     }
 
+    /**
+     * Finds a registered city by id without throwing if there is none.
+     *
+     * @param id The id of the city.
+     * @return The city, or empty if no city is registered with the id.
+     */
+    public static Optional<City> findById(int id) {
+        City[] cities = byId;
+        return id < 0 || id >= cities.length ? Optional.empty() : Optional.ofNullable(cities[id]);
+    }
+
+    /**
+     * @param id The id of the city.
+     * @return The registered city.
+     * @throws IllegalArgumentException If no city is registered with the id.
+     */
+    public static City ofId(int id) {
+        City[] cities = byId;
+        if (id < 0 || id >= cities.length || cities[id] == null) {
+            throw new IllegalArgumentException("No city registered with id " + id);
+        }
+        return cities[id];
+    }
+
+    public int id() {
+        return id;
+    }
+
+    @JsonValue
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int compareTo(City other) {
+        return Integer.compare(id, other.id);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
 }
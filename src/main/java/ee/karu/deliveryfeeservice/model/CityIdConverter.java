@@ -0,0 +1,21 @@
+package ee.karu.deliveryfeeservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a city as its id, the built-in cities keep the ordinals they were stored with as an enum.
+ */
+@Converter
+public class CityIdConverter implements AttributeConverter<City, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(City city) {
+        return city == null ? null : city.id();
+    }
+
+    @Override
+    public City convertToEntityAttribute(Integer id) {
+        return id == null ? null : City.ofId(id);
+    }
+}
@@ -0,0 +1,22 @@
+package ee.karu.deliveryfeeservice.model;
+
+import java.util.List;
+
+/**
+ * A city of the station registry as stored in the stations file.
+ *
+ * @param name     The name of the city in upper case, as given in fee requests and fee rules.
+ * @param id       The id of the city, stored with its observations, so it must never change or be reused.
+ * @param stations The weather stations whose observations are used for the city.
+ */
+public record CityStations(String name, int id, List<Station> stations) {
+
+    /**
+     * A station is matched by its name in the observations document, or by its WMO code if the name is not known.
+     *
+     * @param name    The name of the station.
+     * @param wmoCode The WMO code of the station, if it has one.
+     */
+    public record Station(String name, Long wmoCode) {
+    }
+}
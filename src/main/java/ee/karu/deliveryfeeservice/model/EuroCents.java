@@ -0,0 +1,47 @@
+package ee.karu.deliveryfeeservice.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversions between fee amounts in euro cents, as fees are calculated, and the euro amounts of the API.
+ * Amounts up to {@link #CACHED_CENTS} are converted to canonical cached instances, so converting a fee allocates nothing.
+ */
+public final class EuroCents {
+
+    /**
+     * The largest amount in cents that is converted to a cached instance.
+     */
+    public static final int CACHED_CENTS = 10_000;
+
+    private static final BigDecimal[] EUROS = new BigDecimal[CACHED_CENTS + 1];
+
+    static {
+        for (int cents = 0; cents <= CACHED_CENTS; cents++) {
+            EUROS[cents] = BigDecimal.valueOf(cents, 2);
+        }
+    }
+
+    private EuroCents() {
+    }
+
+    /**
+     * @param cents The amount in euro cents.
+     * @return The amount in euros with two decimals.
+     */
+    public static BigDecimal toEuros(long cents) {
+        return cents >= 0 && cents <= CACHED_CENTS ? EUROS[(int) cents] : BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * @param euros The amount in euros.
+     * @return The amount in euro cents.
+     * @throws IllegalArgumentException If the amount has more than two decimals.
+     */
+    public static long toCents(BigDecimal euros) {
+        try {
+            return euros.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must not have more than two decimals: " + euros, e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ee.karu.deliveryfeeservice.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of a delivery fee calculation for a city and vehicle type.
+ */
+public sealed interface FeeQuote permits FeeQuote.Fee, FeeQuote.Forbidden, FeeQuote.NoData {
+
+    FeeQuote NO_DATA = new NoData();
+
+    /**
+     * The vehicle type is allowed and the total delivery fee is known.
+     *
+     * @param cents  The total delivery fee in euro cents.
+     * @param amount The total delivery fee in euros.
+     */
+    record Fee(long cents, BigDecimal amount) implements FeeQuote {
+
+        private static final Fee[] CACHED = new Fee[EuroCents.CACHED_CENTS + 1];
+
+        static {
+            for (int cents = 0; cents <= EuroCents.CACHED_CENTS; cents++) {
+                CACHED[cents] = new Fee(cents, EuroCents.toEuros(cents));
+            }
+        }
+
+        /**
+         * @param amount The total delivery fee in euros, with at most two decimals.
+         */
+        public Fee(BigDecimal amount) {
+            this(EuroCents.toCents(amount), amount);
+        }
+
+        /**
+         * @param cents The total delivery fee in euro cents.
+         * @return The fee, a cached instance unless the amount exceeds {@link EuroCents#CACHED_CENTS}.
+         */
+        public static Fee ofCents(long cents) {
+            return cents >= 0 && cents <= EuroCents.CACHED_CENTS ? CACHED[(int) cents] : new Fee(cents, EuroCents.toEuros(cents));
+        }
+    }
+
+    /**
+     * Usage of the vehicle type is forbidden due to extreme weather conditions.
+     *
+     * @param reason The reason given to the client.
+     */
+    record Forbidden(String reason) implements FeeQuote {
+    }
+
+    /**
+     * There is no observation data for the city.
+     */
+    record NoData() implements FeeQuote {
+    }
+}
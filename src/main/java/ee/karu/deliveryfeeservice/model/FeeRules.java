@@ -0,0 +1,49 @@
+package ee.karu.deliveryfeeservice.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delivery fee rules as stored in the rules file.
+ * Extra fee rules are evaluated in the given order and the first matching rule of each kind applies.
+ *
+ * @param forbiddenReason      The message given when a rule forbids the vehicle type.
+ * @param baseFees             Regional base fee (RBF) for every city and vehicle type.
+ * @param airTemperatureRules  Extra fee rules based on air temperature (ATEF).
+ * @param windSpeedRules       Extra fee rules based on wind speed (WSEF).
+ * @param phenomenonRules      Extra fee rules based on weather phenomenon (WPEF).
+ */
+public record FeeRules(String forbiddenReason,
+                       Map<City, Map<VehicleType, BigDecimal>> baseFees,
+                       List<ThresholdRule> airTemperatureRules,
+                       List<ThresholdRule> windSpeedRules,
+                       List<PhenomenonRule> phenomenonRules) {
+
+    /**
+     * Matches values within the given bounds. Bounds that are not given are unlimited.
+     *
+     * @param vehicleTypes The vehicle types the rule applies to.
+     * @param above        Exclusive lower bound.
+     * @param atLeast      Inclusive lower bound.
+     * @param below        Exclusive upper bound.
+     * @param atMost       Inclusive upper bound.
+     * @param fee          The extra fee in euros, ignored if the rule forbids the vehicle type.
+     * @param forbidden    Whether matching values forbid the vehicle type.
+     */
+    public record ThresholdRule(Set<VehicleType> vehicleTypes, Double above, Double atLeast, Double below, Double atMost,
+                                BigDecimal fee, boolean forbidden) {
+    }
+
+    /**
+     * Matches phenomena containing any of the keywords, ignoring case.
+     *
+     * @param vehicleTypes The vehicle types the rule applies to.
+     * @param keywords     The keywords to look for in the phenomenon.
+     * @param fee          The extra fee in euros, ignored if the rule forbids the vehicle type.
+     * @param forbidden    Whether matching phenomena forbid the vehicle type.
+     */
+    public record PhenomenonRule(Set<VehicleType> vehicleTypes, List<String> keywords, BigDecimal fee, boolean forbidden) {
+    }
+}
@@ -0,0 +1,29 @@
+package ee.karu.deliveryfeeservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A lease on a named lock shared by all instances through the database.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "ingest_lock")
+public class IngestLockEntity {
+
+    @Id
+    private String name;
+    private String owner;
+    /**
+     * Epoch milliseconds after which the lease may be taken over by another instance.
+     */
+    private long expiresAt;
+}
@@ -0,0 +1,92 @@
+package ee.karu.deliveryfeeservice.model;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Immutable view of the most recent observation for every city.
+ * Instances are never modified after construction, a newer observation set produces a new snapshot.
+ */
+@Getter
+public final class ObservationSnapshot {
+
+    public static final ObservationSnapshot EMPTY = new ObservationSnapshot(new TreeMap<>(), Instant.EPOCH);
+
+    private final Map<City, StationEntity> stations;
+    private final Instant createdAt;
+
+    private ObservationSnapshot(TreeMap<City, StationEntity> stations, Instant createdAt) {
+        this.stations = Collections.unmodifiableMap(stations);
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Creates a snapshot containing the given stations.
+     * If several stations belong to the same city, the one with the latest timestamp is kept.
+     *
+     * @param stations  The station entities to include.
+     * @param createdAt The moment the snapshot was created.
+     * @return The new snapshot.
+     */
+    public static ObservationSnapshot of(Collection<StationEntity> stations, Instant createdAt) {
+        return EMPTY.merge(stations, createdAt);
+    }
+
+    /**
+     * Creates a new snapshot where the given stations replace the older observations of their cities.
+     * Cities not present in the given stations keep their current observation.
+     *
+     * @param stations  The station entities to merge.
+     * @param createdAt The moment the snapshot was created.
+     * @return The new snapshot.
+     */
+    public ObservationSnapshot merge(Collection<StationEntity> stations, Instant createdAt) {
+        TreeMap<City, StationEntity> merged = new TreeMap<>();
+        merged.putAll(this.stations);
+        for (StationEntity station : stations) {
+            StationEntity current = merged.get(station.getCity());
+            if (current == null || current.getTimestamp() <= station.getTimestamp()) {
+                merged.put(station.getCity(), station.toBuilder().build());
+            }
+        }
+        return new ObservationSnapshot(merged, createdAt);
+    }
+
+    /**
+     * Combines this snapshot with another one, keeping the newest observation of every city.
+     * Snapshots published concurrently may reach their listeners out of order, so an older snapshot
+     * must not replace the observations of a newer one.
+     *
+     * @param other The snapshot to combine with.
+     * @return The snapshot which is at least as new for every city, or a merged snapshot if neither is.
+     */
+    public ObservationSnapshot combine(ObservationSnapshot other) {
+        if (other.isAtLeastAsNewAs(this)) {
+            return other;
+        }
+        if (isAtLeastAsNewAs(other)) {
+            return this;
+        }
+        return merge(other.stations.values(), createdAt.isAfter(other.createdAt) ? createdAt : other.createdAt);
+    }
+
+    private boolean isAtLeastAsNewAs(ObservationSnapshot other) {
+        for (StationEntity station : other.stations.values()) {
+            StationEntity current = stations.get(station.getCity());
+            if (current == null || current.getTimestamp() < station.getTimestamp()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Optional<StationEntity> getStation(City city) {
+        return Optional.ofNullable(stations.get(city));
+    }
+}
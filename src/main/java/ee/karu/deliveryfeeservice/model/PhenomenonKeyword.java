@@ -0,0 +1,81 @@
+package ee.karu.deliveryfeeservice.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keywords that phenomenon fee rules can match. A phenomenon is classified once into a bitmask of the keywords it contains,
+ * so fee rules are matched with bit operations instead of string scans.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PhenomenonKeyword {
+    SNOW("snow"),
+    SLEET("sleet"),
+    RAIN("rain"),
+    GLAZE("glaze"),
+    HAIL("hail"),
+    THUNDER("thunder");
+
+    private static final PhenomenonKeyword[] KEYWORDS = values();
+    private static final int MAX_CACHED_PHENOMENA = 1024;
+    private static final Map<String, Integer> CLASSIFICATIONS = new ConcurrentHashMap<>();
+
+    private final String keyword;
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Finds the keyword with the given text, ignoring case.
+     *
+     * @param keyword The keyword text.
+     * @return The keyword.
+     * @throws IllegalArgumentException If the keyword is not known.
+     */
+    public static PhenomenonKeyword fromKeyword(String keyword) {
+        for (PhenomenonKeyword phenomenonKeyword : KEYWORDS) {
+            if (phenomenonKeyword.keyword.equalsIgnoreCase(keyword)) {
+                return phenomenonKeyword;
+            }
+        }
+        throw new IllegalArgumentException("Unknown phenomenon keyword: " + keyword);
+    }
+
+    /**
+     * Classifies the phenomenon into a bitmask of the keywords it contains, ignoring case.
+     * The weather service uses a small set of phenomena, so classifications are cached per phenomenon text.
+     *
+     * @param phenomenon The weather phenomenon, may be null.
+     * @return The bitmask of {@link #mask()} values, 0 for a null phenomenon.
+     */
+    public static int classify(String phenomenon) {
+        if (phenomenon == null) {
+            return 0;
+        }
+        Integer flags = CLASSIFICATIONS.get(phenomenon);
+        if (flags == null) {
+            flags = classifyUncached(phenomenon);
+            if (CLASSIFICATIONS.size() < MAX_CACHED_PHENOMENA) {
+                CLASSIFICATIONS.putIfAbsent(phenomenon, flags);
+            }
+        }
+        return flags;
+    }
+
+    private static int classifyUncached(String phenomenon) {
+        String phenomenonLowerCased = phenomenon.toLowerCase(Locale.ROOT);
+        int flags = 0;
+        for (PhenomenonKeyword phenomenonKeyword : KEYWORDS) {
+            if (phenomenonLowerCased.contains(phenomenonKeyword.keyword)) {
+                flags |= phenomenonKeyword.mask();
+            }
+        }
+        return flags;
+    }
+}
@@ -0,0 +1,31 @@
+package ee.karu.deliveryfeeservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The latest observation snapshot of the ingest leader in a compact binary encoding, read by the other instances.
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "shared_snapshot")
+public class SharedSnapshotEntity {
+
+    @Id
+    private String name;
+    /**
+     * Increases with every shared snapshot, so readers can check for a newer snapshot without loading it.
+     */
+    private long version;
+    @Lob
+    private byte[] data;
+}
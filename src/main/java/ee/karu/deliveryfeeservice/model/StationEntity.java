@@ -1,29 +1,74 @@
 package ee.karu.deliveryfeeservice.model;
 
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.*;
 
+import java.util.Objects;
+
 @Entity
 @Setter
 @Getter
 @Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name="station")
+@Table(name="station", indexes = @Index(name = "idx_station_city_timestamp", columnList = "city, timestamp DESC"))
 public class StationEntity {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "station_seq")
+    @SequenceGenerator(name = "station_seq", sequenceName = "station_seq", allocationSize = 50)
     private Long id;
+    @Convert(converter = CityIdConverter.class)
     private City city;
     private long wmoCode;
     private String phenomenon;
     private double airTemperature;
     private double windSpeed;
     private long timestamp;
+    /**
+     * Bitmask of the {@link PhenomenonKeyword} values the phenomenon contains, kept in sync with the phenomenon.
+     */
+    @Transient
+    @Setter(AccessLevel.NONE)
+    private int phenomenonFlags;
+
+    public void setPhenomenon(String phenomenon) {
+        this.phenomenon = phenomenon;
+        this.phenomenonFlags = PhenomenonKeyword.classify(phenomenon);
+    }
+
+    /**
+     * @param other Another observation.
+     * @return Whether the other observation reports the same phenomenon, air temperature and wind speed,
+     * which are all that fees depend on.
+     */
+    public boolean hasSameWeather(StationEntity other) {
+        return Objects.equals(phenomenon, other.phenomenon)
+                && Double.compare(airTemperature, other.airTemperature) == 0
+                && Double.compare(windSpeed, other.windSpeed) == 0;
+    }
+
+    @PostLoad
+    void classifyPhenomenon() {
+        phenomenonFlags = PhenomenonKeyword.classify(phenomenon);
+    }
+
+    public static class StationEntityBuilder {
+        public StationEntityBuilder phenomenon(String phenomenon) {
+            this.phenomenon = phenomenon;
+            this.phenomenonFlags = PhenomenonKeyword.classify(phenomenon);
+            return this;
+        }
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,40 @@
+package ee.karu.deliveryfeeservice.repository;
+
+import ee.karu.deliveryfeeservice.model.IngestLockEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface IngestLockRepository extends JpaRepository<IngestLockEntity, String> {
+
+    /**
+     * Renews the lease of the owner, or takes over an expired lease, in a single conditional update.
+     *
+     * @param name      The lock name.
+     * @param owner     The instance acquiring the lock.
+     * @param expiresAt The new expiry of the lease in epoch milliseconds.
+     * @param now       The current time in epoch milliseconds.
+     * @return 1 if the lease is now held by the owner, 0 if it is held by another instance or the lock row does not exist.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestLockEntity l SET l.owner = :owner, l.expiresAt = :expiresAt " +
+            "WHERE l.name = :name AND (l.owner = :owner OR l.expiresAt < :now)")
+    int renewOrTakeOver(@Param("name") String name, @Param("owner") String owner, @Param("expiresAt") long expiresAt,
+                        @Param("now") long now);
+
+    /**
+     * Creates the lock row without an owner and with an expired lease, unless it already exists.
+     * An existing row is not an error, so instances creating the lock do not fail on each other's rows.
+     *
+     * @param name The lock name.
+     * @return 1 if the lock row was created, 0 if it already existed.
+     */
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO IngestLockEntity (name, owner, expiresAt) SELECT :name, CAST(NULL AS String), 0L " +
+            "WHERE NOT EXISTS (SELECT 1 FROM IngestLockEntity l WHERE l.name = :name)")
+    int createIfAbsent(@Param("name") String name);
+}
@@ -0,0 +1,20 @@
+package ee.karu.deliveryfeeservice.repository;
+
+import ee.karu.deliveryfeeservice.model.SharedSnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SharedSnapshotRepository extends JpaRepository<SharedSnapshotEntity, String> {
+
+    /**
+     * Reads only the version of the shared snapshot, so polling for a newer snapshot does not transfer its data.
+     *
+     * @param name The snapshot name.
+     * @return The version, or empty if no snapshot has been shared.
+     */
+    @Query("SELECT s.version FROM SharedSnapshotEntity s WHERE s.name = :name")
+    Optional<Long> findVersion(@Param("name") String name);
+}
@@ -2,11 +2,82 @@ package ee.karu.deliveryfeeservice.repository;
 
 import ee.karu.deliveryfeeservice.model.City;
 import ee.karu.deliveryfeeservice.model.StationEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface StationRepository extends JpaRepository<StationEntity, Long> {
 
-    Optional<StationEntity> getFirstByCityOrderByTimestampDesc(City city);
+    /**
+     * Finds the latest observation of the given city.
+     *
+     * @param city The given city.
+     * @return The latest observation, or empty if there is none.
+     */
+    default Optional<StationEntity> getFirstByCityOrderByTimestampDesc(City city) {
+        return getFirstByCityOrderByCityAscTimestampDesc(city);
+    }
+
+    /**
+     * Ordering by city as well lets the database read the first row from the (city, timestamp DESC) index
+     * instead of sorting all observations of the city.
+     */
+    Optional<StationEntity> getFirstByCityOrderByCityAscTimestampDesc(City city);
+
+    /**
+     * Finds the observation of the given city in force at the given timestamp, reading the first row
+     * from the (city, timestamp DESC) index.
+     *
+     * @param city      The given city.
+     * @param timestamp The inclusive upper bound of the observation timestamp.
+     * @return The latest observation made at or before the timestamp, or empty if there is none.
+     */
+    Optional<StationEntity> getFirstByCityAndTimestampLessThanEqualOrderByCityAscTimestampDesc(City city, long timestamp);
+
+    /**
+     * Finds all observations of the given city in timestamp order.
+     *
+     * @param city The given city.
+     * @return The observations, oldest first.
+     */
+    List<StationEntity> findByCityOrderByCityAscTimestampAsc(City city);
+
+    /**
+     * Finds the observations of the given city newer than the given timestamp in timestamp order.
+     *
+     * @param city      The given city.
+     * @param timestamp The exclusive lower bound of the observation timestamps.
+     * @return The observations, oldest first.
+     */
+    List<StationEntity> findByCityAndTimestampGreaterThanOrderByCityAscTimestampAsc(City city, long timestamp);
+
+    /**
+     * Finds the ids of the oldest observations older than the given timestamp.
+     *
+     * @param timestamp The exclusive upper bound of the observation timestamps.
+     * @param limit     The maximum number of ids.
+     * @return The ids in ascending order.
+     */
+    @Query("SELECT s.id FROM StationEntity s WHERE s.timestamp < :timestamp ORDER BY s.id")
+    List<Long> findIdsOlderThan(@Param("timestamp") long timestamp, Limit limit);
+
+    /**
+     * Deletes at most {@code limit} observations older than the given timestamp in its own transaction.
+     * The rows are selected first and deleted by id, as a limited delete has no portable SQL form.
+     *
+     * @param timestamp The exclusive upper bound of the deleted observation timestamps.
+     * @param limit     The maximum number of deleted rows.
+     * @return The number of deleted rows.
+     */
+    @Transactional
+    default int deleteOlderThan(long timestamp, int limit) {
+        List<Long> ids = findIdsOlderThan(timestamp, Limit.of(limit));
+        deleteAllByIdInBatch(ids);
+        return ids.size();
+    }
 }
@@ -0,0 +1,66 @@
+package ee.karu.deliveryfeeservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Migrates a station table created while the city was stored as an enum ordinal. Hibernate created the city column
+ * as a tinyint with a check constraint allowing only the ordinals of the enum, which rejects observations of cities
+ * added to the station registry. Hibernate does not change existing columns, so the constraint is dropped and
+ * the column widened here. A table created with the city id column needs no migration.
+ * Such tables were only created in the bundled H2 database, so the migration is skipped on other databases.
+ */
+@Slf4j
+@Component
+public class StationSchemaMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StationSchemaMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Runs once the schema has been updated by Hibernate, before the other startup listeners store observations.
+     * A failed migration is logged, as observations of the built-in cities are still stored.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        try {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (!"H2".equals(database)) {
+                log.debug("Skipping the city column migration of the station table on {}", database);
+                return;
+            }
+            List<String> constraints = jdbcTemplate.queryForList("""
+                    SELECT u.CONSTRAINT_NAME FROM INFORMATION_SCHEMA.CONSTRAINT_COLUMN_USAGE u
+                    JOIN INFORMATION_SCHEMA.CHECK_CONSTRAINTS c
+                    ON c.CONSTRAINT_SCHEMA = u.CONSTRAINT_SCHEMA AND c.CONSTRAINT_NAME = u.CONSTRAINT_NAME
+                    WHERE UPPER(u.TABLE_NAME) = 'STATION' AND UPPER(u.COLUMN_NAME) = 'CITY'""", String.class);
+            for (String constraint : constraints) {
+                jdbcTemplate.execute("ALTER TABLE station DROP CONSTRAINT \"" + constraint + "\"");
+                log.info("Dropped city check constraint {} of the station table", constraint);
+            }
+            List<String> types = jdbcTemplate.queryForList("""
+                    SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS
+                    WHERE UPPER(TABLE_NAME) = 'STATION' AND UPPER(COLUMN_NAME) = 'CITY'""", String.class);
+            if (types.stream().anyMatch(type -> type.equalsIgnoreCase("TINYINT") || type.equalsIgnoreCase("SMALLINT"))) {
+                jdbcTemplate.execute("ALTER TABLE station ALTER COLUMN city SET DATA TYPE INTEGER");
+                log.info("Widened the city column of the station table to integer");
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not migrate the city column of the station table", e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.EuroCents;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.FeeRules;
+import ee.karu.deliveryfeeservice.model.PhenomenonKeyword;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Fee rules compiled into flat arrays of euro cents, thresholds and phenomenon keyword masks,
+ * indexed by city id and vehicle type ordinal.
+ * Instances are immutable, so a rule set is always evaluated as a whole even while it is being replaced.
+ * Evaluation does not allocate, and quotes are cached instances.
+ */
+public final class CompiledFeeRules {
+
+    /**
+     * Returned by {@link #evaluate} when the vehicle type is forbidden.
+     */
+    public static final long FORBIDDEN = -1;
+
+    /**
+     * The largest single fee. A total adds up at most four fees, so every total fits the int of euro cents
+     * in the result frames of the internal protocol.
+     */
+    public static final long MAX_FEE_CENTS = Integer.MAX_VALUE / 4;
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    @Getter
+    private final String version;
+    @Getter
+    private final String forbiddenReason;
+    private final long[] baseFeeCents;
+    private final Thresholds[] airTemperature;
+    private final Thresholds[] windSpeed;
+    private final PhenomenonMasks[] phenomenon;
+    private final FeeQuote.Forbidden forbidden;
+
+    private CompiledFeeRules(String version, String forbiddenReason, long[] baseFeeCents, Thresholds[] airTemperature,
+                             Thresholds[] windSpeed, PhenomenonMasks[] phenomenon) {
+        this.version = version;
+        this.forbiddenReason = forbiddenReason;
+        this.baseFeeCents = baseFeeCents;
+        this.airTemperature = airTemperature;
+        this.windSpeed = windSpeed;
+        this.phenomenon = phenomenon;
+        this.forbidden = new FeeQuote.Forbidden(forbiddenReason);
+    }
+
+    /**
+     * Validates the rules and compiles them.
+     *
+     * @param rules   The rules read from the rules file.
+     * @param version Identifies the rules, e.g. a checksum of the rules file.
+     * @return The compiled rules.
+     * @throws IllegalArgumentException If a base fee of a registered city is missing, a fee is negative, exceeds
+     *                                  {@link #MAX_FEE_CENTS} or has more than two decimals,
+     *                                  or a phenomenon keyword is not a {@link PhenomenonKeyword}.
+     */
+    public static CompiledFeeRules compile(FeeRules rules, String version) {
+        if (rules.forbiddenReason() == null || rules.forbiddenReason().isBlank()) {
+            throw new IllegalArgumentException("Forbidden reason is required");
+        }
+        long[] baseFeeCents = new long[City.idBound() * VEHICLE_TYPES.length];
+        for (City city : City.values()) {
+            Map<VehicleType, BigDecimal> cityFees = rules.baseFees() == null ? null : rules.baseFees().get(city);
+            for (VehicleType vehicleType : VEHICLE_TYPES) {
+                BigDecimal fee = cityFees == null ? null : cityFees.get(vehicleType);
+                if (fee == null) {
+                    throw new IllegalArgumentException("Base fee missing for " + city + " and " + vehicleType);
+                }
+                baseFeeCents[index(city, vehicleType)] = toCents(fee);
+            }
+        }
+        return new CompiledFeeRules(version, rules.forbiddenReason(), baseFeeCents,
+                Thresholds.compile(rules.airTemperatureRules()),
+                Thresholds.compile(rules.windSpeedRules()),
+                PhenomenonMasks.compile(rules.phenomenonRules()));
+    }
+
+    /**
+     * Evaluates the total fee for the given city, vehicle type and weather conditions.
+     *
+     * @param city           The given city.
+     * @param vehicleType    The type of vehicle.
+     * @param airTemperature The air temperature.
+     * @param windSpeed      The wind speed.
+     * @param phenomenonFlags The weather phenomenon classified with {@link PhenomenonKeyword#classify}.
+     * @return The total fee in euro cents, or {@link #FORBIDDEN} if usage of the vehicle type is forbidden.
+     */
+    public long evaluate(City city, VehicleType vehicleType, double airTemperature, double windSpeed, int phenomenonFlags) {
+        int vehicle = vehicleType.ordinal();
+        long temperatureFee = this.airTemperature[vehicle].evaluate(airTemperature);
+        long windFee = this.windSpeed[vehicle].evaluate(windSpeed);
+        long phenomenonFee = this.phenomenon[vehicle].evaluate(phenomenonFlags);
+        if (temperatureFee == FORBIDDEN || windFee == FORBIDDEN || phenomenonFee == FORBIDDEN) {
+            return FORBIDDEN;
+        }
+        return baseFeeCents[index(city, vehicleType)] + temperatureFee + windFee + phenomenonFee;
+    }
+
+    /**
+     * Evaluates the fee outcome for the given city and vehicle type under the weather conditions of the observation.
+     *
+     * @param city        The given city.
+     * @param vehicleType The type of vehicle.
+     * @param station     The observation of the city's weather station.
+     * @return The fee or forbidden outcome.
+     */
+    public FeeQuote quote(City city, VehicleType vehicleType, StationEntity station) {
+        long cents = evaluate(city, vehicleType, station.getAirTemperature(), station.getWindSpeed(), station.getPhenomenonFlags());
+        return cents == FORBIDDEN ? forbidden : FeeQuote.Fee.ofCents(cents);
+    }
+
+    /**
+     * @param city        The given city.
+     * @param vehicleType The type of vehicle.
+     * @return The regional base fee in euros.
+     */
+    public BigDecimal getBaseFee(City city, VehicleType vehicleType) {
+        return EuroCents.toEuros(baseFeeCents[index(city, vehicleType)]);
+    }
+
+    private static int index(City city, VehicleType vehicleType) {
+        return city.id() * VEHICLE_TYPES.length + vehicleType.ordinal();
+    }
+
+    private static long toCents(BigDecimal fee) {
+        if (fee == null || fee.signum() < 0) {
+            throw new IllegalArgumentException("Fee must be a non-negative amount: " + fee);
+        }
+        long cents = EuroCents.toCents(fee);
+        if (cents > MAX_FEE_CENTS) {
+            throw new IllegalArgumentException("Fee must not exceed " + EuroCents.toEuros(MAX_FEE_CENTS) + ": " + fee);
+        }
+        return cents;
+    }
+
+    /**
+     * Threshold rules of one vehicle type, in evaluation order. The first rule whose bounds contain the value applies.
+     */
+    private record Thresholds(double[] lower, boolean[] lowerInclusive, double[] upper, boolean[] upperInclusive,
+                              long[] cents) {
+
+        static Thresholds[] compile(List<FeeRules.ThresholdRule> rules) {
+            Thresholds[] thresholds = new Thresholds[VEHICLE_TYPES.length];
+            for (VehicleType vehicleType : VEHICLE_TYPES) {
+                List<FeeRules.ThresholdRule> applicable = new ArrayList<>();
+                for (FeeRules.ThresholdRule rule : Objects.requireNonNullElse(rules, List.<FeeRules.ThresholdRule>of())) {
+                    if (rule.above() != null && rule.atLeast() != null || rule.below() != null && rule.atMost() != null) {
+                        throw new IllegalArgumentException("Threshold rule has two bounds on the same side: " + rule);
+                    }
+                    if (rule.vehicleTypes() != null && rule.vehicleTypes().contains(vehicleType)) {
+                        applicable.add(rule);
+                    }
+                }
+                int size = applicable.size();
+                Thresholds compiled = new Thresholds(new double[size], new boolean[size], new double[size],
+                        new boolean[size], new long[size]);
+                for (int i = 0; i < size; i++) {
+                    FeeRules.ThresholdRule rule = applicable.get(i);
+                    compiled.lower[i] = rule.above() != null ? rule.above()
+                            : Objects.requireNonNullElse(rule.atLeast(), Double.NEGATIVE_INFINITY);
+                    compiled.lowerInclusive[i] = rule.above() == null;
+                    compiled.upper[i] = rule.below() != null ? rule.below()
+                            : Objects.requireNonNullElse(rule.atMost(), Double.POSITIVE_INFINITY);
+                    compiled.upperInclusive[i] = rule.below() == null;
+                    compiled.cents[i] = rule.forbidden() ? FORBIDDEN : toCents(rule.fee());
+                }
+                thresholds[vehicleType.ordinal()] = compiled;
+            }
+            return thresholds;
+        }
+
+        long evaluate(double value) {
+            for (int i = 0; i < cents.length; i++) {
+                boolean aboveLower = value > lower[i] || lowerInclusive[i] && value == lower[i];
+                boolean belowUpper = value < upper[i] || upperInclusive[i] && value == upper[i];
+                if (aboveLower && belowUpper) {
+                    return cents[i];
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Phenomenon rules of one vehicle type, in evaluation order. The first rule sharing a keyword with the phenomenon applies.
+     */
+    private record PhenomenonMasks(int[] masks, long[] cents) {
+
+        static PhenomenonMasks[] compile(List<FeeRules.PhenomenonRule> rules) {
+            PhenomenonMasks[] phenomenonMasks = new PhenomenonMasks[VEHICLE_TYPES.length];
+            for (VehicleType vehicleType : VEHICLE_TYPES) {
+                List<FeeRules.PhenomenonRule> applicable = new ArrayList<>();
+                for (FeeRules.PhenomenonRule rule : Objects.requireNonNullElse(rules, List.<FeeRules.PhenomenonRule>of())) {
+                    if (rule.vehicleTypes() == null || rule.keywords() == null || rule.keywords().isEmpty()) {
+                        throw new IllegalArgumentException("Phenomenon rule needs vehicle types and keywords: " + rule);
+                    }
+                    if (rule.vehicleTypes().contains(vehicleType)) {
+                        applicable.add(rule);
+                    }
+                }
+                PhenomenonMasks compiled = new PhenomenonMasks(new int[applicable.size()], new long[applicable.size()]);
+                for (int i = 0; i < applicable.size(); i++) {
+                    FeeRules.PhenomenonRule rule = applicable.get(i);
+                    for (String keyword : rule.keywords()) {
+                        compiled.masks[i] |= PhenomenonKeyword.fromKeyword(keyword).mask();
+                    }
+                    compiled.cents[i] = rule.forbidden() ? FORBIDDEN : toCents(rule.fee());
+                }
+                phenomenonMasks[vehicleType.ordinal()] = compiled;
+            }
+            return phenomenonMasks;
+        }
+
+        long evaluate(int phenomenonFlags) {
+            for (int i = 0; i < cents.length; i++) {
+                if ((phenomenonFlags & masks[i]) != 0) {
+                    return cents[i];
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -1,11 +1,28 @@
 package ee.karu.deliveryfeeservice.service;
 
+import ee.karu.deliveryfeeservice.dto.FeeQuoteRequestDto;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteResultDto;
 import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
 import ee.karu.deliveryfeeservice.model.VehicleType;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 
 
 public interface FeeCalculationService {
     BigDecimal calculateFee(City city, VehicleType vehicleType);
+
+    BigDecimal calculateFee(City city, VehicleType vehicleType, Instant at);
+
+    FeeQuote quoteFee(City city, VehicleType vehicleType);
+
+    FeeQuote quoteFee(City city, VehicleType vehicleType, Instant at);
+
+    String getQuoteETag(City city);
+
+    FeeMatrix getFeeMatrix();
+
+    List<FeeQuoteResultDto> calculateFees(List<FeeQuoteRequestDto> requests);
 }
@@ -1,24 +1,95 @@
 package ee.karu.deliveryfeeservice.service;
 
+import ee.karu.deliveryfeeservice.dto.FeeQuoteRequestDto;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteResultDto;
+import ee.karu.deliveryfeeservice.event.FeeMatrixRebuiltEvent;
+import ee.karu.deliveryfeeservice.event.FeeRulesReloadedEvent;
+import ee.karu.deliveryfeeservice.event.ObservationSnapshotPublishedEvent;
 import ee.karu.deliveryfeeservice.exception.ExtremeWeatherConditionException;
 import ee.karu.deliveryfeeservice.exception.NoSuchObservationDataException;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
 import ee.karu.deliveryfeeservice.model.City;
-import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.EuroCents;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.PhenomenonKeyword;
 import ee.karu.deliveryfeeservice.model.VehicleType;
-import ee.karu.deliveryfeeservice.repository.StationRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 public class FeeCalculationServiceImpl implements FeeCalculationService {
 
-    private final StationRepository stationRepository;
+    private final ObservationSnapshotService observationSnapshotService;
+    private final FeeRulesService feeRulesService;
+    private final ObservationHistoryService observationHistoryService;
+    private final FeeMetrics feeMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile FeeMatrix feeMatrix;
 
-    public FeeCalculationServiceImpl(StationRepository stationRepository) {
-        this.stationRepository = stationRepository;
+    public FeeCalculationServiceImpl(ObservationSnapshotService observationSnapshotService, FeeRulesService feeRulesService,
+                                     ObservationHistoryService observationHistoryService, FeeMetrics feeMetrics,
+                                     ApplicationEventPublisher eventPublisher) {
+        this.observationSnapshotService = observationSnapshotService;
+        this.feeRulesService = feeRulesService;
+        this.observationHistoryService = observationHistoryService;
+        this.feeMetrics = feeMetrics;
+        this.eventPublisher = eventPublisher;
+        this.feeMatrix = FeeMatrix.of(observationSnapshotService.getSnapshot(), feeRulesService.getRules());
+    }
+
+    /**
+     * Rebuilds the fee matrix whenever a new observation snapshot is published.
+     * Rebuilds are serialized with rule reloads, so neither can overwrite the other's result,
+     * and listeners of {@link FeeMatrixRebuiltEvent} receive the rebuilt matrices in order.
+     * If the snapshot only advances the observation time and reports the same weather, the fee outcomes and
+     * their entity tags are kept and no rebuild is announced, so cached quotes stay valid.
+     * Snapshots published concurrently may arrive out of order, so the snapshot is combined with the current one
+     * and an older observation never replaces a newer one.
+     *
+     * @param event The event carrying the new snapshot.
+     */
+    @EventListener
+    public synchronized void onObservationSnapshotPublished(ObservationSnapshotPublishedEvent event) {
+        ObservationSnapshot snapshot = feeMatrix.getSnapshot().combine(event.snapshot());
+        if (snapshot == feeMatrix.getSnapshot()) {
+            log.debug("Fee matrix kept for outdated snapshot created at {}", event.snapshot().getCreatedAt());
+            return;
+        }
+        CompiledFeeRules rules = feeRulesService.getRules();
+        if (feeMatrix.getRules() == rules && feeMatrix.hasSameWeather(snapshot)) {
+            feeMatrix = feeMatrix.withSnapshot(snapshot);
+            log.debug("Fee matrix kept for snapshot created at {} with unchanged weather", snapshot.getCreatedAt());
+            return;
+        }
+        feeMatrix = FeeMatrix.of(snapshot, rules);
+        log.debug("Fee matrix rebuilt for snapshot created at {}", snapshot.getCreatedAt());
+        eventPublisher.publishEvent(new FeeMatrixRebuiltEvent(feeMatrix));
+    }
+
+    /**
+     * Rebuilds the fee matrix with the latest observation snapshot whenever the fee rules are reloaded.
+     *
+     * @param event The event carrying the new rules.
+     */
+    @EventListener
+    public synchronized void onFeeRulesReloaded(FeeRulesReloadedEvent event) {
+        feeMatrix = FeeMatrix.of(feeMatrix.getSnapshot(), event.rules());
+        log.debug("Fee matrix rebuilt for reloaded fee rules");
+        eventPublisher.publishEvent(new FeeMatrixRebuiltEvent(feeMatrix));
+    }
+
+    @Override
+    public FeeMatrix getFeeMatrix() {
+        return feeMatrix;
     }
 
 
@@ -26,60 +97,164 @@ public class FeeCalculationServiceImpl implements FeeCalculationService {
      * Calculates the total fee based on the given city and vehicle type, adding together
      * regional base fee (RBF), extra fee based on air temperature (ATEF),
      * extra fee based on wind speed (WPEF), and extra fee based on phenomenon (WSEF).
+     * The result is looked up from the fee matrix precomputed for the latest observation snapshot.
      *
      * @param city  The given city.
      * @param vehicleType The type of vehicle.
      * @return The total fee calculated based on the provided factors.
      * @throws NoSuchObservationDataException If observation data for the specified city is not available.
+     * @throws ExtremeWeatherConditionException If usage of the vehicle type is forbidden.
      */
     @Override
     public BigDecimal calculateFee(City city, VehicleType vehicleType) {
 
         log.debug("Calculating fee for city:{} and vehicle:{}", city, vehicleType);
 
-        StationEntity stationEntity = stationRepository.getFirstByCityOrderByTimestampDesc(city)
-                .orElseThrow(NoSuchObservationDataException::new);
+        return toFee(quoteFee(city, vehicleType));
+    }
+
+    /**
+     * Calculates the total fee based on the given city and vehicle type
+     * against the observation that was in force at the given instant, using the current fee rules.
+     *
+     * @param city        The given city.
+     * @param vehicleType The type of vehicle.
+     * @param at          The instant to price at.
+     * @return The total fee calculated based on the provided factors.
+     * @throws NoSuchObservationDataException If there is no observation for the city made at or before the instant.
+     * @throws ExtremeWeatherConditionException If usage of the vehicle type was forbidden.
+     */
+    @Override
+    public BigDecimal calculateFee(City city, VehicleType vehicleType, Instant at) {
+
+        log.debug("Calculating fee for city:{} and vehicle:{} at {}", city, vehicleType, at);
+
+        return toFee(quoteFee(city, vehicleType, at));
+    }
+
+    private static BigDecimal toFee(FeeQuote quote) {
+        if (quote instanceof FeeQuote.Fee fee) {
+            return fee.amount();
+        }
+        if (quote instanceof FeeQuote.Forbidden forbidden) {
+            throw new ExtremeWeatherConditionException(forbidden.reason());
+        }
+        throw new NoSuchObservationDataException();
+    }
+
+    /**
+     * Looks up the fee outcome for the given city and vehicle type without throwing exceptions.
+     * Forbidden vehicle types and missing observation data are returned as {@link FeeQuote} variants.
+     * If the fee matrix has no observation of the city, the latest observation is loaded from the database,
+     * with concurrent requests for the city sharing one lookup.
+     * The duration is recorded in the delivery.fee.calculation timer, tagged with the outcome.
+     *
+     * @param city        The given city.
+     * @param vehicleType The type of vehicle.
+     * @return The fee, forbidden or no data outcome.
+     */
+    @Override
+    public FeeQuote quoteFee(City city, VehicleType vehicleType) {
+        long start = System.nanoTime();
+        FeeQuote quote = feeMatrix.get(city, vehicleType);
+        if (quote == FeeQuote.NO_DATA && observationSnapshotService.loadLatestStation(city).isPresent()) {
+            quote = feeMatrix.get(city, vehicleType);
+        }
+        feeMetrics.recordCalculation(city, vehicleType, quote, System.nanoTime() - start);
+        return quote;
+    }
 
-        double airTemperature = stationEntity.getAirTemperature();
-        double windSpeed = stationEntity.getWindSpeed();
-        String phenomenon = stationEntity.getPhenomenon();
+    /**
+     * Returns the entity tag of the current fee outcomes of the city. The tag changes whenever a new observation
+     * of the city or new fee rules are applied, so it can be used to validate cached quotes without calculating them.
+     *
+     * @param city The given city.
+     * @return The quoted entity tag.
+     */
+    @Override
+    public String getQuoteETag(City city) {
+        return feeMatrix.getETag(city);
+    }
 
-        log.debug("Recent weather data for {} is air temperature={}, wind speed={} and phenomenon={}", city, airTemperature, windSpeed, phenomenon);
+    /**
+     * Looks up the fee outcome for the given city and vehicle type at the given instant without throwing exceptions.
+     * The observation in force is found in the in-memory observation history, not in the database.
+     *
+     * @param city        The given city.
+     * @param vehicleType The type of vehicle.
+     * @param at          The instant to price at.
+     * @return The fee, forbidden or no data outcome.
+     */
+    @Override
+    public FeeQuote quoteFee(City city, VehicleType vehicleType, Instant at) {
+        return quoteHistoricalFee(feeRulesService.getRules(), city, vehicleType, at);
+    }
 
-        return calculateRBF(city, vehicleType)
-                .add(calculateATEF(vehicleType, airTemperature)
-                .add(calculateWPEF(vehicleType, phenomenon))
-                .add(calculateWSEF(vehicleType, windSpeed)));
+    private FeeQuote quoteHistoricalFee(CompiledFeeRules rules, City city, VehicleType vehicleType, Instant at) {
+        return observationHistoryService.getStationAt(city, at)
+                .map(station -> rules.quote(city, vehicleType, station))
+                .orElse(FeeQuote.NO_DATA);
+    }
 
+    /**
+     * Calculates fees for a batch of city and vehicle type pairs.
+     * All items are priced against the same fee matrix, so each city's observation is read once per batch
+     * and the results are consistent even if a new observation arrives meanwhile.
+     * Items with an instant, e.g. historical orders being re-priced, are priced against the observation in force
+     * at that instant with the fee rules of the same matrix.
+     * If the fee matrix has no observation of a requested city, the latest observation is loaded once per city
+     * the same way as for {@link #quoteFee(City, VehicleType)}, and the batch is priced against the matrix rebuilt with it.
+     * Forbidden vehicle types, missing observation data and incomplete items or unknown cities are reported per item.
+     *
+     * @param requests The requested city and vehicle type pairs.
+     * @return The result for every request, in the same order.
+     */
+    @Override
+    public List<FeeQuoteResultDto> calculateFees(List<FeeQuoteRequestDto> requests) {
+        log.debug("Calculating fees for {} requests", requests.size());
+
+        List<City> cities = requests.stream()
+                .map(request -> request.findCity().orElse(null))
+                .toList();
+        FeeMatrix matrix = loadMissingStations(feeMatrix, requests, cities);
+        return IntStream.range(0, requests.size())
+                .mapToObj(i -> quoteItem(matrix, requests.get(i), cities.get(i)))
+                .toList();
+    }
+
+    private FeeQuoteResultDto quoteItem(FeeMatrix matrix, FeeQuoteRequestDto request, City city) {
+        if (city == null || request.getVehicleType() == null) {
+            return FeeQuoteResultDto.invalid(request);
+        }
+        return FeeQuoteResultDto.of(request, request.getAt() == null
+                ? matrix.get(city, request.getVehicleType())
+                : quoteHistoricalFee(matrix.getRules(), city, request.getVehicleType(), request.getAt()));
+    }
+
+    private FeeMatrix loadMissingStations(FeeMatrix matrix, List<FeeQuoteRequestDto> requests, List<City> cities) {
+        List<City> missing = IntStream.range(0, requests.size())
+                .filter(i -> cities.get(i) != null && requests.get(i).getVehicleType() != null && requests.get(i).getAt() == null
+                        && matrix.get(cities.get(i), requests.get(i).getVehicleType()) == FeeQuote.NO_DATA)
+                .mapToObj(cities::get)
+                .distinct()
+                .toList();
+        boolean loaded = false;
+        for (City city : missing) {
+            loaded |= observationSnapshotService.loadLatestStation(city).isPresent();
+        }
+        return loaded ? feeMatrix : matrix;
     }
 
     /**
      * Calculates the regional base fee (RBF) based on the specified city and vehicle type.
+     * The base fees are read from the given fee rules, which have a base fee for every city of the station registry.
+     * @param rules The compiled fee rules.
      * @param city The given city.
      * @param vehicleType The type of vehicle.
      * @return The calculated regional base fee in euros.
      */
-    public static BigDecimal calculateRBF(City city, VehicleType vehicleType) {
-        return switch (city) {
-            case TALLINN ->
-                switch (vehicleType) {
-                    case CAR -> new BigDecimal("4.00");
-                    case SCOOTER -> new BigDecimal("3.50");
-                    case BIKE -> new BigDecimal("3.00");
-                };
-            case TARTU ->
-                switch (vehicleType) {
-                    case CAR -> new BigDecimal("3.50");
-                    case SCOOTER ->  new BigDecimal("3.00");
-                    case BIKE ->  new BigDecimal("2.50");
-                };
-            case PÄRNU ->
-                switch (vehicleType) {
-                    case CAR -> new BigDecimal("3.00");
-                    case SCOOTER -> new BigDecimal("2.50");
-                    case BIKE -> new BigDecimal("2.00");
-                };
-        };
+    public static BigDecimal calculateRBF(CompiledFeeRules rules, City city, VehicleType vehicleType) {
+        return rules.getBaseFee(city, vehicleType);
     }
 
     /**
@@ -96,14 +271,14 @@ public class FeeCalculationServiceImpl implements FeeCalculationService {
      */
     public static BigDecimal calculateATEF(VehicleType vehicleType, double airTemperature) {
         if (vehicleType == VehicleType.CAR) {
-            return new BigDecimal("0.00");
+            return EuroCents.toEuros(0);
         }
         if (airTemperature < -10) {
-            return new BigDecimal("1.00");
+            return EuroCents.toEuros(100);
         } else if (airTemperature <= 0) {
-            return new BigDecimal("0.50");
+            return EuroCents.toEuros(50);
         }
-        return new BigDecimal("0.00");
+        return EuroCents.toEuros(0);
     }
 
     /**
@@ -122,14 +297,14 @@ public class FeeCalculationServiceImpl implements FeeCalculationService {
      */
     public static BigDecimal calculateWSEF(VehicleType vehicleType, double windSpeed) {
         if (vehicleType != VehicleType.BIKE) {
-            return new BigDecimal("0.00");
+            return EuroCents.toEuros(0);
         }
         if (windSpeed >= 10 && windSpeed <= 20) {
-            return new BigDecimal("0.50");
+            return EuroCents.toEuros(50);
         } else if (windSpeed > 20) {
             throw new ExtremeWeatherConditionException("Usage of selected vehicle type is forbidden");
         }
-        return new BigDecimal("0.00");
+        return EuroCents.toEuros(0);
     }
 
     /**
@@ -143,29 +318,27 @@ public class FeeCalculationServiceImpl implements FeeCalculationService {
      * If the weather phenomenon does not match any of the conditions above, WPEF is set to 0.00.
      *
      * @param vehicleType The type of vehicle.
-     * @param phenomenon  The weather phenomenon.
+     * @param phenomenon  The weather phenomenon, classified with a cached {@link PhenomenonKeyword} lookup. Null matches nothing.
      * @return The calculated extra fee based on weather phenomenon.
      * @throws ExtremeWeatherConditionException "Usage of selected vehicle type is forbidden" is given.
      */
     public static BigDecimal calculateWPEF(VehicleType vehicleType, String phenomenon) {
         if (vehicleType == VehicleType.CAR) {
-            return new BigDecimal("0.00");
+            return EuroCents.toEuros(0);
         }
-        String phenomenonLowerCased = phenomenon.toLowerCase();
+        int phenomenonFlags = PhenomenonKeyword.classify(phenomenon);
 
-        if (phenomenonLowerCased.contains("snow")
-                || phenomenonLowerCased.contains("sleet")) {
-            return new BigDecimal("1.00");
+        if ((phenomenonFlags & (PhenomenonKeyword.SNOW.mask() | PhenomenonKeyword.SLEET.mask())) != 0) {
+            return EuroCents.toEuros(100);
         }
-        if (phenomenonLowerCased.contains("rain")) {
-            return new BigDecimal("0.50");
+        if ((phenomenonFlags & PhenomenonKeyword.RAIN.mask()) != 0) {
+            return EuroCents.toEuros(50);
         }
-        if (phenomenonLowerCased.contains("glaze")
-                || phenomenonLowerCased.contains("hail")
-                || phenomenonLowerCased.contains("thunder")) {
+        if ((phenomenonFlags & (PhenomenonKeyword.GLAZE.mask() | PhenomenonKeyword.HAIL.mask()
+                | PhenomenonKeyword.THUNDER.mask())) != 0) {
             throw new ExtremeWeatherConditionException("Usage of selected vehicle type is forbidden");
         }
-        return new BigDecimal("0.00");
+        return EuroCents.toEuros(0);
     }
 
 }
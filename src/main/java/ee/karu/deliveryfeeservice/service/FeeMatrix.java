@@ -0,0 +1,98 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import lombok.Getter;
+
+/**
+ * Precomputed fee outcome for every combination of city and vehicle type, indexed by city id and vehicle type ordinal.
+ * The outcome only depends on the fee rules and the latest observation of a city, so the table is built once per
+ * observation snapshot or rule change and the request path is reduced to an array lookup.
+ */
+public final class FeeMatrix {
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    @Getter
+    private final ObservationSnapshot snapshot;
+    @Getter
+    private final CompiledFeeRules rules;
+    private final FeeQuote[] quotes;
+    private final String[] eTags;
+
+    private FeeMatrix(ObservationSnapshot snapshot, CompiledFeeRules rules, FeeQuote[] quotes, String[] eTags) {
+        this.snapshot = snapshot;
+        this.rules = rules;
+        this.quotes = quotes;
+        this.eTags = eTags;
+    }
+
+    /**
+     * Builds the fee outcome table for the given snapshot and fee rules.
+     *
+     * @param snapshot The observation snapshot.
+     * @param rules    The fee rules.
+     * @return The fee matrix.
+     */
+    public static FeeMatrix of(ObservationSnapshot snapshot, CompiledFeeRules rules) {
+        FeeQuote[] quotes = new FeeQuote[City.idBound() * VEHICLE_TYPES.length];
+        String[] eTags = new String[City.idBound()];
+        for (City city : City.values()) {
+            StationEntity station = snapshot.getStations().get(city);
+            eTags[city.id()] = "\"" + (station == null ? "none" : Long.toHexString(station.getTimestamp()))
+                    + "-" + rules.getVersion() + "\"";
+            for (VehicleType vehicleType : VEHICLE_TYPES) {
+                quotes[index(city, vehicleType)] = station == null
+                        ? FeeQuote.NO_DATA
+                        : rules.quote(city, vehicleType, station);
+            }
+        }
+        return new FeeMatrix(snapshot, rules, quotes, eTags);
+    }
+
+    /**
+     * Returns this table for a snapshot that reports the same weather as the one it was built for,
+     * keeping the fee outcomes and entity tags.
+     *
+     * @param snapshot The observation snapshot.
+     * @return The fee matrix.
+     */
+    public FeeMatrix withSnapshot(ObservationSnapshot snapshot) {
+        return new FeeMatrix(snapshot, rules, quotes, eTags);
+    }
+
+    /**
+     * @param snapshot An observation snapshot.
+     * @return Whether the snapshot has an observation of the same cities as the snapshot of this table,
+     * reporting the same weather, so the fee outcomes are the same.
+     */
+    public boolean hasSameWeather(ObservationSnapshot snapshot) {
+        for (City city : City.values()) {
+            StationEntity station = this.snapshot.getStations().get(city);
+            StationEntity other = snapshot.getStations().get(city);
+            if (station == null ? other != null : other == null || !station.hasSameWeather(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public FeeQuote get(City city, VehicleType vehicleType) {
+        return quotes[index(city, vehicleType)];
+    }
+
+    /**
+     * @param city The given city.
+     * @return The entity tag of the city's fee outcomes, derived from the observation timestamp and the rules version.
+     */
+    public String getETag(City city) {
+        return eTags[city.id()];
+    }
+
+    private static int index(City city, VehicleType vehicleType) {
+        return city.id() * VEHICLE_TYPES.length + vehicleType.ordinal();
+    }
+}
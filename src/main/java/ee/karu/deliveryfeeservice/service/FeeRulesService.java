@@ -0,0 +1,107 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
+import ee.karu.deliveryfeeservice.event.FeeRulesReloadedEvent;
+import ee.karu.deliveryfeeservice.model.FeeRules;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.CRC32;
+
+@Slf4j
+@Service
+@DependsOn("stationRegistry")
+public class FeeRulesService {
+
+    private final Resource location;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile CompiledFeeRules rules;
+    private volatile long lastModified;
+
+    /**
+     * Loads the fee rules on startup. Invalid rules fail the startup, as there is nothing to fall back to.
+     */
+    public FeeRulesService(FeeRulesProperties properties, ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+        this.location = properties.location();
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.lastModified = lastModified();
+        try {
+            this.rules = load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read fee rules from " + location, e);
+        }
+        log.info("Fee rules loaded from {}", location);
+    }
+
+    /**
+     * Reloads the fee rules if the rules file has been modified since it was last read.
+     */
+    @Scheduled(fixedDelayString = "${fee.rules.reload-interval}", initialDelayString = "${fee.rules.reload-interval}")
+    public void reloadIfModified() {
+        long modified = lastModified();
+        if (modified != lastModified) {
+            lastModified = modified;
+            reload();
+        }
+    }
+
+    /**
+     * Reads and compiles the fee rules and replaces the current rules with them in a single step,
+     * then notifies listeners with a {@link FeeRulesReloadedEvent}.
+     * If the rules cannot be read or are invalid, the current rules are kept.
+     *
+     * @return Whether the rules were replaced.
+     */
+    public boolean reload() {
+        CompiledFeeRules reloaded;
+        try {
+            reloaded = load();
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Could not reload fee rules from {}, keeping the current rules", location, e);
+            return false;
+        }
+        rules = reloaded;
+        log.info("Fee rules reloaded from {}", location);
+        eventPublisher.publishEvent(new FeeRulesReloadedEvent(reloaded));
+        return true;
+    }
+
+    public CompiledFeeRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Reads and compiles the rules. The rules are versioned by a checksum of the file content,
+     * so every instance serving the same rules file reports the same version.
+     */
+    private CompiledFeeRules load() throws IOException {
+        byte[] content;
+        try (InputStream inputStream = location.getInputStream()) {
+            content = inputStream.readAllBytes();
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(content);
+        return CompiledFeeRules.compile(objectMapper.readValue(content, FeeRules.class), Long.toHexString(checksum.getValue()));
+    }
+
+    /**
+     * @return The modification time of the rules file, or 0 if it is not known, e.g. for resources inside a jar.
+     */
+    private long lastModified() {
+        try {
+            return location.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
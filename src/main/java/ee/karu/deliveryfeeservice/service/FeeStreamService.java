@@ -0,0 +1,244 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeStreamProperties;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteRequestDto;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteResultDto;
+import ee.karu.deliveryfeeservice.dto.FeeTableDto;
+import ee.karu.deliveryfeeservice.event.FeeMatrixRebuiltEvent;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * Pushes the fee table of a city to its subscribers whenever a fee outcome of the city changes.
+ * Subscriptions are asynchronous requests, so idle subscribers do not hold a request thread.
+ * Events are written to the subscribers on the application task executor, so a slow subscriber never delays
+ * the fee matrix rebuild that produced them. A subscriber that falls behind skips to the latest fee table.
+ */
+@Slf4j
+@Service
+@DependsOn("stationRegistry")
+public class FeeStreamService {
+
+    static final String EVENT_NAME = "fees";
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final long timeoutMillis;
+    private final City[] cities = City.values();
+    private final List<List<Subscriber>> subscribers = IntStream.range(0, City.idBound())
+            .<List<Subscriber>>mapToObj(id -> new CopyOnWriteArrayList<>())
+            .toList();
+    private final FeeTable[] tables = new FeeTable[City.idBound()];
+
+    public FeeStreamService(FeeCalculationService feeCalculationService, ObjectMapper objectMapper,
+                            FeeStreamProperties feeStreamProperties,
+                            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.timeoutMillis = feeStreamProperties.timeout().toMillis();
+        updateTables(feeCalculationService.getFeeMatrix());
+    }
+
+    /**
+     * Subscribes to fee changes of the city. The current fee table is sent right away.
+     * The subscriber is added and the table queued under the lock of the table updates, so a concurrent rebuild
+     * is either contained in the queued table or queued after it, and the subscriber always ends on the latest table.
+     *
+     * @param city The given city.
+     * @return The emitter of the subscription.
+     */
+    public SseEmitter subscribe(City city) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        List<Subscriber> citySubscribers = subscribers.get(city.id());
+        Subscriber subscriber = new Subscriber(emitter, citySubscribers);
+        emitter.onCompletion(() -> citySubscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> citySubscribers.remove(subscriber));
+        synchronized (this) {
+            citySubscribers.add(subscriber);
+            subscriber.offer(tables[city.id()]);
+        }
+        return emitter;
+    }
+
+    /**
+     * Queues the fee table of every city whose fee outcomes differ from the previously sent ones for its subscribers.
+     * Returns without waiting for the events to be written. Tables are queued under the lock of the table updates,
+     * so they are queued in the order of the rebuilds.
+     *
+     * @param event The event carrying the rebuilt fee matrix.
+     */
+    @EventListener
+    public synchronized void onFeeMatrixRebuilt(FeeMatrixRebuiltEvent event) {
+        for (FeeTable table : updateTables(event.feeMatrix())) {
+            List<Subscriber> citySubscribers = subscribers.get(table.city().id());
+            log.debug("Sending changed fees of {} to {} subscribers", table.city(), citySubscribers.size());
+            for (Subscriber subscriber : citySubscribers) {
+                subscriber.offer(table);
+            }
+        }
+    }
+
+    /**
+     * Sends a comment to every subscriber that has no event pending, so that idle connections are kept open by proxies
+     * and closed connections are detected and removed.
+     */
+    @Scheduled(fixedDelayString = "${fee.stream.heartbeat-interval}", initialDelayString = "${fee.stream.heartbeat-interval}")
+    public void sendHeartbeat() {
+        for (List<Subscriber> citySubscribers : subscribers) {
+            for (Subscriber subscriber : citySubscribers) {
+                subscriber.offerHeartbeat();
+            }
+        }
+    }
+
+    public int getSubscriberCount(City city) {
+        return subscribers.get(city.id()).size();
+    }
+
+    /**
+     * Replaces the fee tables of cities whose fee outcomes have changed.
+     *
+     * @return The changed tables.
+     */
+    private synchronized List<FeeTable> updateTables(FeeMatrix feeMatrix) {
+        List<FeeTable> changed = new ArrayList<>();
+        for (City city : cities) {
+            FeeQuote[] quotes = new FeeQuote[VEHICLE_TYPES.length];
+            for (VehicleType vehicleType : VEHICLE_TYPES) {
+                quotes[vehicleType.ordinal()] = feeMatrix.get(city, vehicleType);
+            }
+            FeeTable previous = tables[city.id()];
+            if (previous == null || !Arrays.equals(previous.quotes(), quotes)) {
+                FeeTable table = new FeeTable(city, quotes, feeMatrix.getETag(city), serialize(city, quotes));
+                tables[city.id()] = table;
+                changed.add(table);
+            }
+        }
+        return changed;
+    }
+
+    private String serialize(City city, FeeQuote[] quotes) {
+        List<FeeQuoteResultDto> fees = Arrays.stream(VEHICLE_TYPES)
+                .map(vehicleType -> FeeQuoteResultDto.of(FeeQuoteRequestDto.of(city, vehicleType), quotes[vehicleType.ordinal()]))
+                .toList();
+        try {
+            return objectMapper.writeValueAsString(FeeTableDto.of(city, fees));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The fee outcomes of a city as last sent to subscribers, serialized once for all of them.
+     */
+    private record FeeTable(City city, FeeQuote[] quotes, String eTag, String json) {
+    }
+
+    /**
+     * A subscription with at most one pending event, written by one executor task at a time.
+     * A newer fee table replaces a pending one, as it supersedes it, and a heartbeat is only queued if nothing is pending.
+     */
+    private final class Subscriber {
+
+        private static final Object HEARTBEAT = new Object();
+
+        private final SseEmitter emitter;
+        private final List<Subscriber> citySubscribers;
+        private final AtomicReference<Object> pending = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, List<Subscriber> citySubscribers) {
+            this.emitter = emitter;
+            this.citySubscribers = citySubscribers;
+        }
+
+        void offer(FeeTable table) {
+            pending.set(table);
+            schedule();
+        }
+
+        void offerHeartbeat() {
+            if (pending.compareAndSet(null, HEARTBEAT)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                remove(e);
+            }
+        }
+
+        /**
+         * Writes pending events until none is left. An event offered while the flag is being cleared is picked up
+         * by this task if it wins the flag back, or by the task scheduled by the offer.
+         */
+        private void drain() {
+            do {
+                Object event;
+                while ((event = pending.getAndSet(null)) != null) {
+                    if (!send(event)) {
+                        pending.set(null);
+                        break;
+                    }
+                }
+                draining.set(false);
+            } while (pending.get() != null && draining.compareAndSet(false, true));
+        }
+
+        private boolean send(Object event) {
+            try {
+                if (event instanceof FeeTable table) {
+                    emitter.send(SseEmitter.event()
+                            .name(EVENT_NAME)
+                            .id(table.eTag())
+                            .data(table.json()));
+                } else {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                remove(e);
+                return false;
+            }
+        }
+
+        private void remove(Exception e) {
+            log.debug("Removing fee stream subscriber: {}", e.getMessage());
+            citySubscribers.remove(this);
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.config.ObservationSourceProperties;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reads recorded observation documents written to a directory, e.g. as an offline or disaster fallback
+ * of the weather service. The directory is watched for new and modified *.xml files, and every fetch
+ * imports the most recently modified of them. Files are memory-mapped and parsed straight from the mapping.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "weather.source.type", havingValue = "file")
+public class FileObservationSource implements ObservationSource {
+
+    private static final String XML_GLOB = "*.xml";
+
+    private final Path directory;
+    private final ObservationParser observationParser;
+    private final WeatherDataMetrics weatherDataMetrics;
+    private final WatchService watchService;
+    private final Set<Path> changed = new HashSet<>();
+    private Path pending;
+
+    /**
+     * Starts watching the directory. Documents already in the directory count as changed, so the first fetch imports the newest.
+     */
+    public FileObservationSource(ObservationSourceProperties properties, ObservationParser observationParser,
+                                 WeatherDataMetrics weatherDataMetrics) {
+        this.directory = properties.directory();
+        this.observationParser = observationParser;
+        this.weatherDataMetrics = weatherDataMetrics;
+        try {
+            this.watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not watch observation directory " + directory, e);
+        }
+        changed.addAll(listDocuments(directory));
+        log.info("Watching {} for observation documents", directory);
+    }
+
+    @Override
+    public synchronized Optional<List<StationEntity>> fetch() {
+        pollChanges();
+        Optional<Path> newest = changed.stream()
+                .filter(Files::isRegularFile)
+                .max(Comparator.comparingLong(FileObservationSource::lastModified));
+        if (newest.isEmpty()) {
+            return Optional.empty();
+        }
+        pending = newest.get();
+        long parseStart = System.nanoTime();
+        List<StationEntity> stationEntities = parseMapped(pending, observationParser);
+        weatherDataMetrics.recordParse(System.nanoTime() - parseStart);
+        return Optional.of(stationEntities);
+    }
+
+    /**
+     * Forgets the changed documents up to the imported one, so older documents written meanwhile are not imported after it.
+     */
+    @Override
+    public synchronized void onImported() {
+        if (pending != null) {
+            long imported = lastModified(pending);
+            changed.removeIf(path -> lastModified(path) <= imported);
+            pending = null;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Memory-maps the observation document and parses it.
+     *
+     * @param path              The observation XML document.
+     * @param observationParser The parser.
+     * @return The station entities of the tracked stations.
+     */
+    static List<StationEntity> parseMapped(Path path, ObservationParser observationParser) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return observationParser.parse(new ByteBufferInputStream(mapped));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read observation document " + path, e);
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Could not parse observation document " + path, e);
+        }
+    }
+
+    /**
+     * @return The *.xml documents of the directory.
+     */
+    static List<Path> listDocuments(Path directory) {
+        List<Path> documents = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, XML_GLOB)) {
+            stream.forEach(documents::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list observation directory " + directory, e);
+        }
+        return documents;
+    }
+
+    private void pollChanges() {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    changed.addAll(listDocuments(directory));
+                } else if (event.context() instanceof Path name && name.toString().endsWith(".xml")) {
+                    changed.add(directory.resolve(name));
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Reads a buffer without copying it to the heap first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
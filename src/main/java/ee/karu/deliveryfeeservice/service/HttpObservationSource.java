@@ -0,0 +1,160 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.config.WeatherProperties;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fetches the observations document from the weather service.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "weather.source.type", havingValue = "http", matchIfMissing = true)
+public class HttpObservationSource implements ObservationSource {
+
+    private final WeatherProperties weatherProperties;
+    private final RestClient restClient;
+    private final ObservationParser observationParser;
+    private final WeatherDataMetrics weatherDataMetrics;
+    private volatile String entityTag;
+    private volatile String lastModified;
+    private volatile FetchResult pending;
+
+    public HttpObservationSource(WeatherProperties weatherProperties, RestClient restClient, ObservationParser observationParser,
+                                 WeatherDataMetrics weatherDataMetrics) {
+        this.weatherProperties = weatherProperties;
+        this.restClient = restClient;
+        this.observationParser = observationParser;
+        this.weatherDataMetrics = weatherDataMetrics;
+    }
+
+    /**
+     * The request is bounded by the configured connect and read timeouts. Connection failures and server errors
+     * are retried with jittered exponential backoff. The ETag and Last-Modified validators of the last imported
+     * document are sent with the request, so an unchanged document is answered with 304 and not parsed again.
+     * The response body is read with a streaming parser.
+     */
+    @Override
+    public Optional<List<StationEntity>> fetch() {
+        Optional<FetchResult> fetchResult = fetchWithRetry();
+        pending = fetchResult.orElse(null);
+        return fetchResult.map(FetchResult::stationEntities);
+    }
+
+    /**
+     * Remembers the validators of the imported document for the next conditional request.
+     */
+    @Override
+    public void onImported() {
+        FetchResult imported = pending;
+        if (imported != null) {
+            entityTag = imported.entityTag();
+            lastModified = imported.lastModified();
+            pending = null;
+        }
+    }
+
+    private Optional<FetchResult> fetchWithRetry() {
+        WeatherProperties.Retry retry = weatherProperties.retry();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return fetchOnce();
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                if (attempt >= retry.maxAttempts()) {
+                    throw e;
+                }
+                Duration backoff = getBackoff(retry, attempt);
+                log.warn("Fetching observation data failed on attempt {}, retrying in {} ms: {}",
+                        attempt, backoff.toMillis(), e.getMessage());
+                sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * Fetches and parses the observation data.
+     *
+     * @return The parsed station entities, or empty if the document has not been modified since the last import.
+     */
+    private Optional<FetchResult> fetchOnce() {
+        long fetchStart = System.nanoTime();
+        return restClient.get()
+                .uri(weatherProperties.url())
+                .accept(MediaType.APPLICATION_XML)
+                .headers(headers -> {
+                    if (entityTag != null) {
+                        headers.setIfNoneMatch(entityTag);
+                    }
+                    if (lastModified != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                    }
+                })
+                .exchange((request, response) -> {
+                    weatherDataMetrics.recordFetch(System.nanoTime() - fetchStart);
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        return Optional.empty();
+                    }
+                    if (response.getStatusCode().is5xxServerError()) {
+                        throw new HttpServerErrorException(response.getStatusCode(), response.getStatusText());
+                    }
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        throw new RestClientException("Weather service responded with " + response.getStatusCode());
+                    }
+                    long parseStart = System.nanoTime();
+                    List<StationEntity> parsed = parse(response.getBody());
+                    weatherDataMetrics.recordParse(System.nanoTime() - parseStart);
+                    return Optional.of(new FetchResult(parsed, response.getHeaders().getETag(),
+                            response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED)));
+                });
+    }
+
+    private static Duration getBackoff(WeatherProperties.Retry retry, int attempt) {
+        long capMillis = Math.min(retry.maxBackoff().toMillis(),
+                retry.initialBackoff().toMillis() << Math.min(attempt - 1, 30));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(capMillis + 1));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private List<StationEntity> parse(InputStream body) {
+        try {
+            return observationParser.parse(body);
+        } catch (XMLStreamException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw new ResourceAccessException("Could not read observation data", ioException);
+            }
+            throw new RestClientException("Could not parse observation data", e);
+        }
+    }
+
+    /**
+     * Parsed observation data together with the validators of the response it was read from.
+     */
+    private record FetchResult(List<StationEntity> stationEntities, String entityTag, String lastModified) {
+    }
+}
@@ -0,0 +1,73 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.config.IngestProperties;
+import ee.karu.deliveryfeeservice.repository.IngestLockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Elects the single instance that imports weather data, using a lease on a row of the ingest_lock table.
+ * Only portable SQL is used, so any database shared by the instances can hold the lock.
+ * Lease expiry is compared with each instance's wall clock, so instance clocks must agree within a small fraction of the lease.
+ */
+@Slf4j
+@Service
+public class IngestLeaderService {
+
+    static final String LOCK_NAME = "weather-ingest";
+
+    private final IngestLockRepository ingestLockRepository;
+    private final String instanceId;
+    private final long leaseMillis;
+    private volatile boolean leader;
+    private volatile boolean lockCreated;
+
+    public IngestLeaderService(IngestLockRepository ingestLockRepository, IngestProperties ingestProperties) {
+        this.ingestLockRepository = ingestLockRepository;
+        this.instanceId = ingestProperties.instanceId();
+        this.leaseMillis = ingestProperties.lease().toMillis();
+    }
+
+    /**
+     * Renews the lease if this instance holds it, or takes it over if it has expired.
+     * The lock row is created once per instance before its first attempt, so acquiring is a single conditional update
+     * and an instance that does not get the lease sees no error.
+     *
+     * @return Whether this instance is the ingest leader until the lease expires.
+     */
+    public boolean tryAcquire() {
+        if (!lockCreated) {
+            createLock();
+        }
+        long now = System.currentTimeMillis();
+        boolean acquired = ingestLockRepository.renewOrTakeOver(LOCK_NAME, instanceId, now + leaseMillis, now) == 1;
+        if (acquired != leader) {
+            log.info(acquired ? "Instance {} became the ingest leader" : "Instance {} is no longer the ingest leader", instanceId);
+            leader = acquired;
+        }
+        return acquired;
+    }
+
+    /**
+     * @return Whether this instance held the lease at its last acquisition attempt.
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Two instances starting on an empty table at the same moment can both pass the existence check,
+     * then the later insert fails on the key, which only means the lock row exists.
+     */
+    private void createLock() {
+        try {
+            if (ingestLockRepository.createIfAbsent(LOCK_NAME) == 1) {
+                log.info("Created the ingest lock");
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.debug("The ingest lock was created by another instance", e);
+        }
+        lockCreated = true;
+    }
+}
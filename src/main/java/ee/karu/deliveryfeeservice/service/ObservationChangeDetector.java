@@ -0,0 +1,63 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dedupe stage of the weather import. Remembers the last stored observation of every station, identified by city
+ * and WMO code, and drops fetched observations that are not newer than it, so an unchanged upstream document
+ * adds no rows. Newer observations are kept even if they report the same weather, as they advance the observation time;
+ * the fee caches are left alone for them by {@link FeeCalculationServiceImpl}.
+ * The last stored observations are seeded from the observation snapshot, which holds the latest stored observation
+ * of every city also after a restart or when another instance was the ingest leader.
+ */
+@Component
+public class ObservationChangeDetector {
+
+    private final Map<StationKey, StationEntity> lastStored = new HashMap<>();
+
+    /**
+     * @param fetched  The fetched observations.
+     * @param snapshot The latest stored observations known to the snapshot.
+     * @return The fetched observations that are newer than the last stored ones, in the fetched order.
+     */
+    public synchronized List<StationEntity> newer(List<StationEntity> fetched, Collection<StationEntity> snapshot) {
+        snapshot.forEach(this::remember);
+        List<StationEntity> newer = new ArrayList<>(fetched.size());
+        for (StationEntity station : fetched) {
+            StationEntity last = lastStored.get(StationKey.of(station));
+            if (last == null || station.getTimestamp() > last.getTimestamp()) {
+                newer.add(station);
+            }
+        }
+        return newer;
+    }
+
+    /**
+     * Remembers the stored observations as the last stored ones of their stations.
+     *
+     * @param stored The observations saved to the database.
+     */
+    public synchronized void stored(Collection<StationEntity> stored) {
+        stored.forEach(this::remember);
+    }
+
+    private void remember(StationEntity station) {
+        lastStored.merge(StationKey.of(station), station,
+                (current, candidate) -> candidate.getTimestamp() >= current.getTimestamp() ? candidate : current);
+    }
+
+    private record StationKey(City city, long wmoCode) {
+
+        static StationKey of(StationEntity station) {
+            return new StationKey(station.getCity(), station.getWmoCode());
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.config.ObservationHistoryProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.PhenomenonKeyword;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a columnar binary export of the observation history in a local file, so that a starting instance loads
+ * the history by memory-mapping the file instead of materializing every row of the station table through Hibernate.
+ * The file is also meant for analytics, which can read the columns without going through the database.
+ * <p>
+ * All numbers are big-endian. The file starts with a header:
+ * <ul>
+ *     <li>int magic {@code DFOH} and byte format version 2,</li>
+ *     <li>int row count,</li>
+ *     <li>the city dictionary as an unsigned short count followed by the city names,</li>
+ *     <li>the phenomenon dictionary as an int count followed by the phenomena,</li>
+ * </ul>
+ * where every string is an unsigned short byte length followed by UTF-8 bytes. The header is followed by the columns
+ * of all rows, sorted by city and timestamp:
+ * <ul>
+ *     <li>city as an unsigned short index into the city dictionary,</li>
+ *     <li>phenomenon as an unsigned short, 0 for none, otherwise the index into the phenomenon dictionary plus one,</li>
+ *     <li>WMO code as a long,</li>
+ *     <li>air temperature as a double,</li>
+ *     <li>wind speed as a double,</li>
+ *     <li>timestamp as the zigzag varint encoded difference to the timestamp of the previous row, or to 0 for the first row.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ObservationHistoryFile {
+
+    private static final int MAGIC = 0x44464f48;
+    private static final byte FORMAT_VERSION = 2;
+    private static final int MAX_PHENOMENA = 0xffff;
+    private static final Comparator<StationEntity> ROW_ORDER = Comparator
+            .comparing(StationEntity::getCity)
+            .thenComparingLong(StationEntity::getTimestamp);
+
+    private final Path file;
+
+    public ObservationHistoryFile(ObservationHistoryProperties properties) {
+        this.file = properties.file();
+    }
+
+    /**
+     * Memory-maps the exported history and reads it. A missing or unreadable file is not an error,
+     * the history is then loaded from the database only.
+     * The observations share one instance of every distinct phenomenon and have no id.
+     *
+     * @return The exported observations sorted by city and timestamp, or an empty list if there is no readable export.
+     */
+    public List<StationEntity> read() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return List.of();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read observation history from {}", file, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Replaces the exported history. The history is written to a temporary file first and moved over the exported one,
+     * so a concurrently starting instance never reads a partially written file.
+     *
+     * @param stations The observations to export, in any order.
+     */
+    public synchronized void write(Collection<StationEntity> stations) {
+        if (file == null) {
+            return;
+        }
+        try {
+            ByteBuffer encoded = encode(stations);
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (encoded.hasRemaining()) {
+                    channel.write(encoded);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Exported {} observations to {}", stations.size(), file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write observation history to {}", file, e);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException If there are more distinct phenomena than the format can index.
+     */
+    static ByteBuffer encode(Collection<StationEntity> stations) {
+        List<StationEntity> rows = new ArrayList<>(stations);
+        rows.sort(ROW_ORDER);
+        Map<City, Integer> cities = new LinkedHashMap<>();
+        Map<String, Integer> phenomena = new LinkedHashMap<>();
+        for (StationEntity row : rows) {
+            cities.putIfAbsent(row.getCity(), cities.size());
+            if (row.getPhenomenon() != null) {
+                phenomena.putIfAbsent(row.getPhenomenon(), phenomena.size());
+            }
+        }
+        if (phenomena.size() > MAX_PHENOMENA) {
+            throw new IllegalStateException("Too many distinct phenomena to export: " + phenomena.size());
+        }
+        List<byte[]> cityNames = cities.keySet().stream().map(city -> utf8(city.name())).toList();
+        List<byte[]> phenomenonNames = phenomena.keySet().stream().map(ObservationHistoryFile::utf8).toList();
+        int n = rows.size();
+        int capacity = 4 + 1 + 4 + 2 + 4
+                + cityNames.stream().mapToInt(name -> 2 + name.length).sum()
+                + phenomenonNames.stream().mapToInt(name -> 2 + name.length).sum()
+                + n * (2 + 2 + 8 + 8 + 8 + 10);
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+
+        buffer.putInt(MAGIC).put(FORMAT_VERSION).putInt(n);
+        buffer.putShort((short) cityNames.size());
+        cityNames.forEach(name -> putString(buffer, name));
+        buffer.putInt(phenomenonNames.size());
+        phenomenonNames.forEach(name -> putString(buffer, name));
+
+        for (StationEntity row : rows) {
+            buffer.putChar((char) cities.get(row.getCity()).intValue());
+        }
+        for (StationEntity row : rows) {
+            buffer.putChar(row.getPhenomenon() == null ? 0 : (char) (phenomena.get(row.getPhenomenon()) + 1));
+        }
+        for (StationEntity row : rows) {
+            buffer.putLong(row.getWmoCode());
+        }
+        for (StationEntity row : rows) {
+            buffer.putDouble(row.getAirTemperature());
+        }
+        for (StationEntity row : rows) {
+            buffer.putDouble(row.getWindSpeed());
+        }
+        long previous = 0;
+        for (StationEntity row : rows) {
+            putVarLong(buffer, zigzag(row.getTimestamp() - previous));
+            previous = row.getTimestamp();
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * @throws IllegalArgumentException If the data is not an observation history export or refers to an unknown city.
+     * @throws BufferUnderflowException  If the data is truncated.
+     */
+    static List<StationEntity> decode(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an observation history export");
+        }
+        byte format = buffer.get();
+        if (format != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported observation history format " + format);
+        }
+        int n = buffer.getInt();
+        if (n < 0 || (long) n * (2 + 2 + 8 + 8 + 8 + 1) > buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated observation history with " + n + " rows");
+        }
+        City[] cities = new City[buffer.getChar()];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = City.valueOf(getString(buffer));
+        }
+        String[] phenomena = new String[buffer.getInt() + 1];
+        int[] phenomenonFlags = new int[phenomena.length];
+        for (int i = 1; i < phenomena.length; i++) {
+            phenomena[i] = getString(buffer);
+            phenomenonFlags[i] = PhenomenonKeyword.classify(phenomena[i]);
+        }
+
+        int cityColumn = buffer.position();
+        int phenomenonColumn = cityColumn + 2 * n;
+        int wmoCodeColumn = phenomenonColumn + 2 * n;
+        int airTemperatureColumn = wmoCodeColumn + 8 * n;
+        int windSpeedColumn = airTemperatureColumn + 8 * n;
+        buffer.position(windSpeedColumn + 8 * n);
+
+        List<StationEntity> stations = new ArrayList<>(n);
+        long timestamp = 0;
+        for (int i = 0; i < n; i++) {
+            timestamp += unzigzag(getVarLong(buffer));
+            char phenomenon = buffer.getChar(phenomenonColumn + 2 * i);
+            stations.add(new StationEntity(
+                    null,
+                    cities[buffer.getChar(cityColumn + 2 * i)],
+                    buffer.getLong(wmoCodeColumn + 8 * i),
+                    phenomena[phenomenon],
+                    buffer.getDouble(airTemperatureColumn + 8 * i),
+                    buffer.getDouble(windSpeedColumn + 8 * i),
+                    timestamp,
+                    phenomenonFlags[phenomenon]));
+        }
+        return stations;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.putChar((char) value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getChar()];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed timestamp");
+    }
+}
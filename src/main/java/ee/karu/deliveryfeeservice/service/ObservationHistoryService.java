@@ -0,0 +1,245 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.event.ObservationSnapshotPublishedEvent;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of all stored observations, kept per city in timestamp order,
+ * so the observation in force at a given instant is found with a binary search instead of a query.
+ */
+@Slf4j
+@Service
+@DependsOn("stationRegistry")
+public class ObservationHistoryService {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final StationRepository stationRepository;
+    private final ObservationHistoryFile observationHistoryFile;
+    private final City[] cities = City.values();
+    private final AtomicReferenceArray<Series> series = new AtomicReferenceArray<>(City.idBound());
+    private volatile boolean loaded;
+
+    public ObservationHistoryService(StationRepository stationRepository, ObservationHistoryFile observationHistoryFile) {
+        this.stationRepository = stationRepository;
+        this.observationHistoryFile = observationHistoryFile;
+        for (City city : cities) {
+            series.set(city.id(), Series.EMPTY);
+        }
+    }
+
+    /**
+     * Loads all stored observations of every city once the application has started,
+     * so the history load does not delay serving current fees.
+     * The exported history is loaded first, and only observations newer than the latest exported one of a city
+     * are queried from the database. The bound is taken from the export rather than from the index,
+     * as snapshots published before the load have already appended their latest observations.
+     * Runs before the snapshot warm-up, which publishes the latest observations.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        List<StationEntity> exported = observationHistoryFile.read();
+        Map<City, List<StationEntity>> exportedByCity = exported.stream()
+                .collect(Collectors.groupingBy(StationEntity::getCity, TreeMap::new, Collectors.toList()));
+        exportedByCity.forEach(this::append);
+        for (City city : cities) {
+            List<StationEntity> cityExported = exportedByCity.getOrDefault(city, List.of());
+            append(city, cityExported.isEmpty()
+                    ? stationRepository.findByCityOrderByCityAscTimestampAsc(city)
+                    : stationRepository.findByCityAndTimestampGreaterThanOrderByCityAscTimestampAsc(city, latestTimestamp(cityExported)));
+        }
+        loaded = true;
+        log.info("Observation history loaded with {} observations, {} of them exported, in {} ms",
+                size(), exported.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Exports the history, so the next start loads it from the export.
+     * This method is scheduled to run at regular intervals based on the observation.history.export-frequency property
+     * defined in application.yaml, and on shutdown. Nothing is exported before the history is loaded.
+     */
+    @PreDestroy
+    @Scheduled(cron = "${observation.history.export-frequency}")
+    public void export() {
+        if (loaded) {
+            observationHistoryFile.write(getStations());
+        }
+    }
+
+    /**
+     * Appends the latest observations of a newly published snapshot.
+     *
+     * @param event The event carrying the new snapshot.
+     */
+    @EventListener
+    public void onObservationSnapshotPublished(ObservationSnapshotPublishedEvent event) {
+        event.snapshot().getStations().forEach((city, station) -> append(city, List.of(station)));
+    }
+
+    /**
+     * Finds the observation in force at the given instant, that is the latest observation made at or before it.
+     * Until the history is loaded, the observation is queried from the database, as the index is still incomplete.
+     *
+     * @param city The given city.
+     * @param at   The instant.
+     * @return The observation, or empty if the city has no observation made at or before the instant.
+     */
+    public Optional<StationEntity> getStationAt(City city, Instant at) {
+        if (!loaded) {
+            return stationRepository.getFirstByCityAndTimestampLessThanEqualOrderByCityAscTimestampDesc(city, at.getEpochSecond());
+        }
+        return Optional.ofNullable(series.get(city.id()).find(at.getEpochSecond()));
+    }
+
+    /**
+     * Removes observations older than the given timestamp, mirroring the retention of the station table.
+     *
+     * @param timestamp The exclusive upper bound of the removed observation timestamps.
+     */
+    public synchronized void removeOlderThan(long timestamp) {
+        for (City city : cities) {
+            series.set(city.id(), series.get(city.id()).removeOlderThan(timestamp));
+        }
+    }
+
+    /**
+     * @return The number of observations in the index.
+     */
+    public int size() {
+        int size = 0;
+        for (City city : cities) {
+            size += series.get(city.id()).size;
+        }
+        return size;
+    }
+
+    private static long latestTimestamp(List<StationEntity> stations) {
+        long latest = Long.MIN_VALUE;
+        for (StationEntity station : stations) {
+            latest = Math.max(latest, station.getTimestamp());
+        }
+        return latest;
+    }
+
+    private List<StationEntity> getStations() {
+        List<StationEntity> stations = new ArrayList<>(size());
+        for (City city : cities) {
+            Series current = series.get(city.id());
+            stations.addAll(Arrays.asList(current.stations).subList(0, current.size));
+        }
+        return stations;
+    }
+
+    private synchronized void append(City city, Collection<StationEntity> stations) {
+        Series current = series.get(city.id());
+        for (StationEntity station : stations) {
+            current = current.add(station);
+        }
+        series.set(city.id(), current);
+    }
+
+    /**
+     * Observations of one city sorted by timestamp, with at most one observation per timestamp.
+     * Appending writes beyond {@code size} into arrays shared with older instances, which never read past their own size,
+     * so published instances can be read without locking.
+     */
+    private static final class Series {
+
+        private static final Series EMPTY = new Series(new long[0], new StationEntity[0], 0);
+
+        private final long[] timestamps;
+        private final StationEntity[] stations;
+        private final int size;
+
+        private Series(long[] timestamps, StationEntity[] stations, int size) {
+            this.timestamps = timestamps;
+            this.stations = stations;
+            this.size = size;
+        }
+
+        StationEntity find(long timestamp) {
+            int index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index < 0 ? null : stations[index];
+        }
+
+        Series add(StationEntity station) {
+            long timestamp = station.getTimestamp();
+            if (size > 0 && timestamp <= timestamps[size - 1]) {
+                return insert(station);
+            }
+            long[] newTimestamps = timestamps;
+            StationEntity[] newStations = stations;
+            if (size == timestamps.length) {
+                int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+                newTimestamps = Arrays.copyOf(timestamps, capacity);
+                newStations = Arrays.copyOf(stations, capacity);
+            }
+            newTimestamps[size] = timestamp;
+            newStations[size] = station;
+            return new Series(newTimestamps, newStations, size + 1);
+        }
+
+        /**
+         * Inserts an out of order observation into copies of the arrays. An observation with an already indexed timestamp is ignored.
+         */
+        private Series insert(StationEntity station) {
+            int index = Arrays.binarySearch(timestamps, 0, size, station.getTimestamp());
+            if (index >= 0) {
+                return this;
+            }
+            index = -index - 1;
+            long[] newTimestamps = new long[Math.max(INITIAL_CAPACITY, size * 2)];
+            StationEntity[] newStations = new StationEntity[newTimestamps.length];
+            System.arraycopy(timestamps, 0, newTimestamps, 0, index);
+            System.arraycopy(stations, 0, newStations, 0, index);
+            newTimestamps[index] = station.getTimestamp();
+            newStations[index] = station;
+            System.arraycopy(timestamps, index, newTimestamps, index + 1, size - index);
+            System.arraycopy(stations, index, newStations, index + 1, size - index);
+            return new Series(newTimestamps, newStations, size + 1);
+        }
+
+        Series removeOlderThan(long timestamp) {
+            int index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+            int from = index < 0 ? -index - 1 : index;
+            if (from == 0) {
+                return this;
+            }
+            int remaining = size - from;
+            int capacity = Math.max(INITIAL_CAPACITY, remaining * 2);
+            long[] newTimestamps = new long[capacity];
+            StationEntity[] newStations = new StationEntity[capacity];
+            System.arraycopy(timestamps, from, newTimestamps, 0, remaining);
+            System.arraycopy(stations, from, newStations, 0, remaining);
+            return new Series(newTimestamps, newStations, remaining);
+        }
+    }
+}
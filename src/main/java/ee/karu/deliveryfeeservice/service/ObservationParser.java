@@ -0,0 +1,143 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser of the observations.php XML document.
+ * Stations not listed in the {@link StationRegistry} are skipped without building any objects,
+ * entities are created only for the tracked stations.
+ */
+@Component
+public class ObservationParser {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private final StationRegistry stationRegistry;
+
+    public ObservationParser(StationRegistry stationRegistry) {
+        this.stationRegistry = stationRegistry;
+    }
+
+    /**
+     * Parses the observation document and creates entities of the tracked stations.
+     * The timestamp of the observation document is set on each station entity.
+     *
+     * @param inputStream The observation XML document.
+     * @return The station entities of the tracked stations.
+     * @throws XMLStreamException If the document is not well-formed.
+     */
+    public List<StationEntity> parse(InputStream inputStream) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+        try {
+            long timestamp = 0;
+            List<StationEntity> stationEntities = new ArrayList<>(City.values().length);
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String localName = reader.getLocalName();
+                if ("observations".equals(localName)) {
+                    timestamp = parseLong(reader.getAttributeValue(null, "timestamp"));
+                } else if ("station".equals(localName)) {
+                    StationEntity stationEntity = parseStation(reader);
+                    if (stationEntity != null) {
+                        stationEntity.setTimestamp(timestamp);
+                        stationEntities.add(stationEntity);
+                    }
+                }
+            }
+            return stationEntities;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the station element the reader is positioned at.
+     * The station is looked up by name, and by WMO code if the name is not tracked.
+     * Returns {@code null} and skips the rest of the element as soon as neither turns out to be tracked.
+     */
+    private StationEntity parseStation(XMLStreamReader reader) throws XMLStreamException {
+        City city = null;
+        String stationName = null;
+        long wmoCode = 0;
+        String phenomenon = null;
+        double airTemperature = 0;
+        double windSpeed = 0;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "name" -> {
+                    stationName = reader.getElementText();
+                    city = stationRegistry.findByStationName(stationName).orElse(city);
+                }
+                case "wmocode" -> {
+                    wmoCode = parseLong(reader.getElementText());
+                    if (city == null) {
+                        city = stationRegistry.findByWmoCode(wmoCode).orElse(null);
+                    }
+                    if (city == null && stationName != null) {
+                        skipElement(reader);
+                        return null;
+                    }
+                }
+                case "phenomenon" -> phenomenon = reader.getElementText();
+                case "airtemperature" -> airTemperature = parseDouble(reader.getElementText());
+                case "windspeed" -> windSpeed = parseDouble(reader.getElementText());
+                default -> skipElement(reader);
+            }
+        }
+
+        if (city == null) {
+            return null;
+        }
+        return StationEntity.builder()
+                .city(city)
+                .wmoCode(wmoCode)
+                .phenomenon(phenomenon)
+                .airTemperature(airTemperature)
+                .windSpeed(windSpeed)
+                .build();
+    }
+
+    /**
+     * Advances the reader to the end of the element it is currently in.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static long parseLong(String value) {
+        return value == null || value.isBlank() ? 0 : Long.parseLong(value.trim());
+    }
+
+    private static double parseDouble(String value) {
+        return value == null || value.isBlank() ? 0 : Double.parseDouble(value.trim());
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
@@ -0,0 +1,149 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.ObservationSnapshotProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a copy of the latest observation snapshot in a local file, so that a starting instance can serve fees
+ * from it before the database and Hibernate are initialized.
+ */
+@Slf4j
+@Component
+public class ObservationSnapshotFile {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<ObservationSnapshot> pending = new AtomicReference<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "observation-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ObservationSnapshotFile(ObservationSnapshotProperties properties, ObjectMapper objectMapper) {
+        this.file = properties.file();
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the stations of the stored snapshot. A missing or unreadable file is not an error,
+     * the snapshot is then loaded from the database only.
+     *
+     * @return The stored stations, or an empty list if there is no readable snapshot file.
+     */
+    public List<StationEntity> read() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return List.of();
+        }
+        try {
+            List<StationEntity> stations = Arrays.stream(objectMapper.readValue(file.toFile(), StoredStation[].class))
+                    .map(StoredStation::toEntity)
+                    .toList();
+            log.info("Observation snapshot preloaded from {}", file);
+            return stations;
+        } catch (IOException e) {
+            log.warn("Could not read observation snapshot from {}", file, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Replaces the stored snapshot. The snapshot is written to a temporary file first and moved over the stored one,
+     * so a concurrently starting instance never reads a partially written file.
+     *
+     * @param snapshot The snapshot to store.
+     */
+    public synchronized void write(ObservationSnapshot snapshot) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temporary.toFile(), snapshot.getStations().values().stream()
+                    .map(StoredStation::of)
+                    .toList());
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write observation snapshot to {}", file, e);
+        }
+    }
+
+    /**
+     * Replaces the stored snapshot on a background thread, so publishing a snapshot does not wait for the disk.
+     * Snapshots passed before the previous one is written are combined, so the file ends up with the newest
+     * observation of every city whichever order concurrent publications call this method in.
+     *
+     * @param snapshot The snapshot to store.
+     */
+    public void writeLater(ObservationSnapshot snapshot) {
+        if (file == null) {
+            return;
+        }
+        if (pending.getAndAccumulate(snapshot, (current, next) -> current == null ? next : current.combine(next)) != null) {
+            return;
+        }
+        try {
+            writer.execute(this::writePending);
+        } catch (RejectedExecutionException e) {
+            writePending();
+        }
+    }
+
+    private void writePending() {
+        ObservationSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot != null) {
+            write(snapshot);
+        }
+    }
+
+    /**
+     * Finishes the pending write on shutdown.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Observation snapshot was not written to {} before shutdown", file);
+        }
+    }
+
+    private record StoredStation(City city, long wmoCode, String phenomenon, double airTemperature, double windSpeed,
+                                 long timestamp) {
+
+        static StoredStation of(StationEntity station) {
+            return new StoredStation(station.getCity(), station.getWmoCode(), station.getPhenomenon(),
+                    station.getAirTemperature(), station.getWindSpeed(), station.getTimestamp());
+        }
+
+        StationEntity toEntity() {
+            return StationEntity.builder()
+                    .city(city)
+                    .wmoCode(wmoCode)
+                    .phenomenon(phenomenon)
+                    .airTemperature(airTemperature)
+                    .windSpeed(windSpeed)
+                    .timestamp(timestamp)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.event.ObservationSnapshotPublishedEvent;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@Slf4j
+@Service
+@DependsOn("stationRegistry")
+public class ObservationSnapshotService {
+
+    private final StationRepository stationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WeatherDataMetrics weatherDataMetrics;
+    private final ObservationSnapshotFile observationSnapshotFile;
+    private final AtomicReference<ObservationSnapshot> snapshot;
+    private final AtomicReferenceArray<CompletableFuture<Optional<StationEntity>>> lookups =
+            new AtomicReferenceArray<>(City.idBound());
+
+    /**
+     * Preloads the snapshot from the local snapshot file, so fees can be served before the database is initialized.
+     */
+    public ObservationSnapshotService(StationRepository stationRepository, ApplicationEventPublisher eventPublisher,
+                                      WeatherDataMetrics weatherDataMetrics, ObservationSnapshotFile observationSnapshotFile) {
+        this.stationRepository = stationRepository;
+        this.eventPublisher = eventPublisher;
+        this.weatherDataMetrics = weatherDataMetrics;
+        this.observationSnapshotFile = observationSnapshotFile;
+        this.snapshot = new AtomicReference<>(ObservationSnapshot.of(observationSnapshotFile.read(), Instant.now()));
+    }
+
+    /**
+     * Loads the latest observation of every city from the database and publishes it, so that the snapshot
+     * is up to date before the first scheduled weather import. Runs once the application has started,
+     * as JPA repositories are initialized in the background and the preloaded snapshot is served meanwhile.
+     * Runs after the observation history is loaded.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<StationEntity> stations = Arrays.stream(City.values())
+                .map(this::findLatestStation)
+                .flatMap(Optional::stream)
+                .toList();
+        publish(stations);
+        // Marked as looked up only once published, so a concurrent miss never joins a lookup ahead of its snapshot
+        for (StationEntity station : stations) {
+            lookups.set(station.getCity().id(), CompletableFuture.completedFuture(Optional.of(station)));
+        }
+        log.info("Observation snapshot warmed up with data for {}", snapshot.get().getStations().keySet());
+    }
+
+    /**
+     * Returns the latest observation of the city, loading it from the database if the snapshot has none,
+     * e.g. when no snapshot file was preloaded and a request arrives before {@link #warmUp()}.
+     * Concurrent misses for the same city share a single lookup, and a found observation is published
+     * before the lookup completes, so the callers return only after the listeners of the publication have run.
+     * A found observation is not looked up again, as every later observation is published to the snapshot anyway.
+     * A city without observations, or a failed lookup, is looked up again by the next miss,
+     * as the observation may have been stored meanwhile by another instance.
+     *
+     * @param city The given city.
+     * @return The latest observation, or empty if there is none or the lookup failed.
+     */
+    public Optional<StationEntity> loadLatestStation(City city) {
+        CompletableFuture<Optional<StationEntity>> inFlight = lookups.get(city.id());
+        if (inFlight != null) {
+            return join(city, inFlight);
+        }
+        Optional<StationEntity> station = snapshot.get().getStation(city);
+        if (station.isPresent()) {
+            return station;
+        }
+        CompletableFuture<Optional<StationEntity>> lookup = new CompletableFuture<>();
+        inFlight = lookups.compareAndExchange(city.id(), null, lookup);
+        if (inFlight != null) {
+            return join(city, inFlight);
+        }
+        try {
+            station = findLatestStation(city);
+            station.ifPresent(found -> publish(List.of(found)));
+        } catch (RuntimeException e) {
+            log.warn("Could not load the latest observation of {}", city, e);
+            station = Optional.empty();
+        }
+        if (station.isEmpty()) {
+            lookups.set(city.id(), null);
+        }
+        lookup.complete(station);
+        return station;
+    }
+
+    /**
+     * @return The observation of the snapshot, which may be newer than the one found by the lookup.
+     */
+    private Optional<StationEntity> join(City city, CompletableFuture<Optional<StationEntity>> lookup) {
+        Optional<StationEntity> found = lookup.join();
+        Optional<StationEntity> station = snapshot.get().getStation(city);
+        return station.isPresent() ? station : found;
+    }
+
+    private Optional<StationEntity> findLatestStation(City city) {
+        long start = System.nanoTime();
+        Optional<StationEntity> station = stationRepository.getFirstByCityOrderByTimestampDesc(city);
+        weatherDataMetrics.recordLookup(city, System.nanoTime() - start);
+        return station;
+    }
+
+    /**
+     * Atomically replaces the current snapshot with one containing the given stations
+     * and notifies listeners with an {@link ObservationSnapshotPublishedEvent}.
+     * The snapshot is then written to the local snapshot file in the background.
+     *
+     * @param stations The newly imported station entities.
+     */
+    public void publish(Collection<StationEntity> stations) {
+        ObservationSnapshot published = snapshot.updateAndGet(current -> current.merge(stations, Instant.now()));
+        log.debug("Published observation snapshot: {}", published.getStations().values());
+        eventPublisher.publishEvent(new ObservationSnapshotPublishedEvent(published));
+        observationSnapshotFile.writeLater(published);
+    }
+
+    public ObservationSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return The time elapsed since the current snapshot was created.
+     */
+    public Duration getSnapshotAge() {
+        return Duration.between(snapshot.get().getCreatedAt(), Instant.now());
+    }
+}
@@ -0,0 +1,27 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.model.StationEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Source of the observations imported by {@link WeatherDataService}.
+ * The source is selected with the weather.source.type property: the weather service over HTTP (default),
+ * recorded documents dropped into a directory, or a recorded day replayed at accelerated speed.
+ */
+public interface ObservationSource {
+
+    /**
+     * Fetches and parses the latest observation of the tracked stations.
+     *
+     * @return The station entities, or empty if there is no observation newer than the last imported one.
+     */
+    Optional<List<StationEntity>> fetch();
+
+    /**
+     * Marks the observation returned by the last fetch as imported, so it is not returned again.
+     * Called only after the observation has been saved, so a failed import is fetched again.
+     */
+    void onImported();
+}
@@ -0,0 +1,99 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.config.ObservationSourceProperties;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Replays recorded observation documents, e.g. a recorded day, at an accelerated speed for soak tests of the import
+ * and of the fee caches. The documents are read once on startup and ordered by their observation timestamp.
+ * Every fetch returns the recorded observation in force at the replay clock, which starts at the first recorded
+ * observation and advances {@code replaySpeed} times faster than real time, so the ingest cron job has to run often enough
+ * to see every observation. With {@code replayLoop} the recording starts over with timestamps shifted by its length,
+ * so replayed observations keep moving forward in time.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "weather.source.type", havingValue = "replay")
+public class ReplayObservationSource implements ObservationSource {
+
+    private static final long DEFAULT_INTERVAL_SECONDS = 3600;
+
+    private final Recording[] recordings;
+    private final long[] timestamps;
+    private final long length;
+    private final double speed;
+    private final boolean loop;
+    private final long startNanos = System.nanoTime();
+    private long imported = -1;
+    private long pending = -1;
+
+    public ReplayObservationSource(ObservationSourceProperties properties, ObservationParser observationParser) {
+        Path directory = properties.directory();
+        this.recordings = FileObservationSource.listDocuments(directory).stream()
+                .map(path -> FileObservationSource.parseMapped(path, observationParser))
+                .filter(stationEntities -> !stationEntities.isEmpty())
+                .map(stationEntities -> new Recording(stationEntities.get(0).getTimestamp(), stationEntities))
+                .sorted(Comparator.comparingLong(Recording::timestamp))
+                .toArray(Recording[]::new);
+        if (recordings.length == 0) {
+            throw new IllegalStateException("No observation documents to replay in " + directory);
+        }
+        this.timestamps = Arrays.stream(recordings).mapToLong(Recording::timestamp).toArray();
+        long span = timestamps[timestamps.length - 1] - timestamps[0];
+        this.length = span + (timestamps.length > 1 ? span / (timestamps.length - 1) : DEFAULT_INTERVAL_SECONDS);
+        this.speed = properties.replaySpeed();
+        this.loop = properties.replayLoop();
+        log.info("Replaying {} observations from {} at {}x speed", recordings.length, directory, speed);
+    }
+
+    @Override
+    public Optional<List<StationEntity>> fetch() {
+        return fetch(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param elapsedNanos The real time elapsed since the replay started.
+     * @return The observation in force at the replay clock, or empty if it has already been imported.
+     */
+    synchronized Optional<List<StationEntity>> fetch(long elapsedNanos) {
+        long replayed = (long) (elapsedNanos / 1e9 * speed);
+        long round = loop ? replayed / length : 0;
+        long offset = loop ? replayed % length : replayed;
+        int index = Arrays.binarySearch(timestamps, timestamps[0] + offset);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        long sequence = round * recordings.length + index;
+        if (sequence == imported) {
+            return Optional.empty();
+        }
+        pending = sequence;
+        long shift = round * length;
+        return Optional.of(recordings[index].stationEntities().stream()
+                .map(station -> station.toBuilder()
+                        .id(null)
+                        .timestamp(station.getTimestamp() + shift)
+                        .build())
+                .toList());
+    }
+
+    @Override
+    public synchronized void onImported() {
+        imported = pending;
+    }
+
+    /**
+     * A recorded observation. Replayed observations are copies, so the recorded entities are never persisted.
+     */
+    private record Recording(long timestamp, List<StationEntity> stationEntities) {
+    }
+}
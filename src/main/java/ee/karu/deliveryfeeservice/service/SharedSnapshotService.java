@@ -0,0 +1,137 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.SharedSnapshotEntity;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.repository.SharedSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Shares the observation snapshot of the ingest leader with the other instances through the shared_snapshot table,
+ * so they refresh their in-memory snapshot without fetching from the weather service themselves.
+ * The snapshot is stored in a compact binary encoding, and the other instances poll only its version.
+ */
+@Slf4j
+@Service
+public class SharedSnapshotService {
+
+    static final String SNAPSHOT_NAME = "latest";
+    private static final byte FORMAT_VERSION = 2;
+    private static final byte BYTE_CITY_FORMAT_VERSION = 1;
+
+    private final SharedSnapshotRepository sharedSnapshotRepository;
+    private final ObservationSnapshotService observationSnapshotService;
+    private final IngestLeaderService ingestLeaderService;
+    private volatile long version;
+
+    public SharedSnapshotService(SharedSnapshotRepository sharedSnapshotRepository, ObservationSnapshotService observationSnapshotService,
+                                 IngestLeaderService ingestLeaderService) {
+        this.sharedSnapshotRepository = sharedSnapshotRepository;
+        this.observationSnapshotService = observationSnapshotService;
+        this.ingestLeaderService = ingestLeaderService;
+    }
+
+    /**
+     * Stores the snapshot for the other instances. The version is one more than the last version shared by any instance,
+     * so every shared snapshot is picked up, even if it updates cities without a newer observation timestamp
+     * than the previous one. Only the ingest leader shares, so the versions are not raced for.
+     *
+     * @param snapshot The snapshot of the ingest leader.
+     */
+    public void share(ObservationSnapshot snapshot) {
+        long snapshotVersion = Math.max(version, sharedSnapshotRepository.findVersion(SNAPSHOT_NAME).orElse(0L)) + 1;
+        sharedSnapshotRepository.save(new SharedSnapshotEntity(SNAPSHOT_NAME, snapshotVersion,
+                encode(snapshot.getStations().values())));
+        version = snapshotVersion;
+        log.debug("Shared observation snapshot version {}", snapshotVersion);
+    }
+
+    /**
+     * Publishes the shared snapshot if it is newer than the one this instance has seen.
+     * The ingest leader skips the check, as it shares its own snapshots.
+     */
+    @Scheduled(fixedDelayString = "${ingest.refresh-interval}", initialDelayString = "${ingest.refresh-interval}")
+    public void refresh() {
+        if (ingestLeaderService.isLeader()) {
+            return;
+        }
+        Optional<Long> sharedVersion = sharedSnapshotRepository.findVersion(SNAPSHOT_NAME);
+        if (sharedVersion.isEmpty() || sharedVersion.get() <= version) {
+            return;
+        }
+        sharedSnapshotRepository.findById(SNAPSHOT_NAME).ifPresent(shared -> {
+            observationSnapshotService.publish(decode(shared.getData()));
+            version = shared.getVersion();
+            log.debug("Refreshed observation snapshot from shared version {}", shared.getVersion());
+        });
+    }
+
+    /**
+     * Encodes the stations as a format version byte and a station count, followed per station by the city id,
+     * WMO code, air temperature, wind speed, timestamp and the phenomenon, if present, in modified UTF-8.
+     */
+    static byte[] encode(Collection<StationEntity> stations) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * stations.size() + 3);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT_VERSION);
+            output.writeShort(stations.size());
+            for (StationEntity station : stations) {
+                output.writeShort(station.getCity().id());
+                output.writeLong(station.getWmoCode());
+                output.writeDouble(station.getAirTemperature());
+                output.writeDouble(station.getWindSpeed());
+                output.writeLong(station.getTimestamp());
+                output.writeBoolean(station.getPhenomenon() != null);
+                if (station.getPhenomenon() != null) {
+                    output.writeUTF(station.getPhenomenon());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the current format, and the previous one that stored the city id in a single byte.
+     *
+     * @throws IllegalArgumentException If the data is in an unknown format or refers to an unregistered city.
+     */
+    static List<StationEntity> decode(byte[] data) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte format = input.readByte();
+            if (format != FORMAT_VERSION && format != BYTE_CITY_FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported shared snapshot format " + format);
+            }
+            int count = input.readUnsignedShort();
+            List<StationEntity> stations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                stations.add(StationEntity.builder()
+                        .city(City.ofId(format == FORMAT_VERSION ? input.readUnsignedShort() : input.readUnsignedByte()))
+                        .wmoCode(input.readLong())
+                        .airTemperature(input.readDouble())
+                        .windSpeed(input.readDouble())
+                        .timestamp(input.readLong())
+                        .phenomenon(input.readBoolean() ? input.readUTF() : null)
+                        .build());
+            }
+            return stations;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
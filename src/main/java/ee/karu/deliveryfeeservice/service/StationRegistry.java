@@ -0,0 +1,102 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.StationRegistryProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.CityStations;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Cities and the weather stations observed for them, read from the stations file on startup,
+ * so cities and stations are added without a new release.
+ * The cities are registered as {@link City} instances and the city registry is frozen, so beans that size
+ * their per-city state up front must be created after this one; a bean created before it fails the startup
+ * when a new city is registered. Stations are found through hash indexes by name and WMO code.
+ */
+@Slf4j
+@Component
+public class StationRegistry {
+
+    private final List<City> cities;
+    private final Map<String, City> citiesByStationName;
+    private final Map<Long, City> citiesByWmoCode;
+
+    /**
+     * Loads the station registry. An invalid registry fails the startup, as no observations could be assigned to cities.
+     */
+    public StationRegistry(StationRegistryProperties properties, ObjectMapper objectMapper) {
+        Resource location = properties.location();
+        CityStations[] definitions;
+        try (InputStream inputStream = location.getInputStream()) {
+            definitions = objectMapper.readValue(inputStream, CityStations[].class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read station registry from " + location, e);
+        }
+        List<City> registered = new ArrayList<>(definitions.length);
+        Map<String, City> byStationName = new HashMap<>();
+        Map<Long, City> byWmoCode = new HashMap<>();
+        for (CityStations definition : definitions) {
+            City city = City.register(definition.id(), definition.name());
+            registered.add(city);
+            for (CityStations.Station station : Objects.requireNonNullElse(definition.stations(), List.<CityStations.Station>of())) {
+                if (station.name() == null || byStationName.putIfAbsent(station.name(), city) != null) {
+                    throw new IllegalArgumentException("Station name missing or listed twice: " + station);
+                }
+                if (station.wmoCode() != null && byWmoCode.putIfAbsent(station.wmoCode(), city) != null) {
+                    throw new IllegalArgumentException("Station WMO code listed twice: " + station);
+                }
+            }
+        }
+        City.freeze();
+        this.cities = List.copyOf(registered);
+        this.citiesByStationName = Map.copyOf(byStationName);
+        this.citiesByWmoCode = Map.copyOf(byWmoCode);
+        log.info("Station registry loaded with {} cities and {} stations from {}", cities.size(), citiesByStationName.size(), location);
+    }
+
+    /**
+     * @return The cities of the registry.
+     */
+    public List<City> getCities() {
+        return cities;
+    }
+
+    /**
+     * Finds the city by the name given in a request, ignoring case and surrounding whitespace.
+     *
+     * @param name The name of the city.
+     * @return The city, or empty if no such city is registered.
+     */
+    public Optional<City> findCity(String name) {
+        return City.find(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @param stationName The name of the station in the observations document.
+     * @return The city the station is observed for, or empty if the station is not tracked.
+     */
+    public Optional<City> findByStationName(String stationName) {
+        return stationName == null ? Optional.empty() : Optional.ofNullable(citiesByStationName.get(stationName));
+    }
+
+    /**
+     * @param wmoCode The WMO code of the station.
+     * @return The city the station is observed for, or empty if the station is not tracked.
+     */
+    public Optional<City> findByWmoCode(long wmoCode) {
+        return Optional.ofNullable(citiesByWmoCode.get(wmoCode));
+    }
+}
@@ -0,0 +1,67 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.config.RetentionProperties;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+@Slf4j
+@Service
+public class StationRetentionService {
+
+    private final StationRepository stationRepository;
+    private final ObservationSnapshotService observationSnapshotService;
+    private final ObservationHistoryService observationHistoryService;
+    private final RetentionProperties retentionProperties;
+    private final IngestLeaderService ingestLeaderService;
+
+    public StationRetentionService(StationRepository stationRepository, ObservationSnapshotService observationSnapshotService,
+                                   ObservationHistoryService observationHistoryService, RetentionProperties retentionProperties,
+                                   IngestLeaderService ingestLeaderService) {
+        this.stationRepository = stationRepository;
+        this.observationSnapshotService = observationSnapshotService;
+        this.observationHistoryService = observationHistoryService;
+        this.retentionProperties = retentionProperties;
+        this.ingestLeaderService = ingestLeaderService;
+    }
+
+    /**
+     * Deletes observations older than the configured retention horizon.
+     * Rows are deleted in batches of the configured size, each in its own short transaction,
+     * so the weather import is never blocked for long.
+     * The latest observation of every city is kept even if it is older than the horizon.
+     * Only the ingest leader deletes from the shared table, the other instances only remove the same observations
+     * from their in-memory observation history.
+     * This method is scheduled to run at regular intervals based on the retention.frequency property defined in application.yaml.
+     *
+     * @return The number of deleted observations, 0 if another instance is the ingest leader.
+     */
+    @Scheduled(cron = "${retention.frequency}")
+    public int deleteExpiredObservations() {
+        long cutoff = getCutoffTimestamp();
+        observationHistoryService.removeOlderThan(cutoff);
+        if (!ingestLeaderService.tryAcquire()) {
+            log.debug("Skipping the retention, another instance is the ingest leader");
+            return 0;
+        }
+        int total = 0;
+        int deleted;
+        do {
+            deleted = stationRepository.deleteOlderThan(cutoff, retentionProperties.batchSize());
+            total += deleted;
+        } while (deleted == retentionProperties.batchSize());
+        log.info("Deleted {} observations older than {}", total, Instant.ofEpochSecond(cutoff));
+        return total;
+    }
+
+    private long getCutoffTimestamp() {
+        long horizonTimestamp = Instant.now().minus(retentionProperties.horizon()).getEpochSecond();
+        return observationSnapshotService.getSnapshot().getStations().values().stream()
+                .mapToLong(StationEntity::getTimestamp)
+                .reduce(horizonTimestamp, Math::min);
+    }
+}
@@ -1,63 +1,113 @@
-
 package ee.karu.deliveryfeeservice.service;
 
-import ee.karu.deliveryfeeservice.dto.ObservationDto;
-import ee.karu.deliveryfeeservice.dto.StationDto;
-import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics.IngestStage;
+import ee.karu.deliveryfeeservice.model.StationEntity;
 import ee.karu.deliveryfeeservice.repository.StationRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
+
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class WeatherDataService {
 
-    private final static String URL = "https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php";
-    private final RestClient restClient;
+    private final ObservationSource observationSource;
     private final StationRepository stationRepository;
+    private final ObservationSnapshotService observationSnapshotService;
+    private final WeatherDataMetrics weatherDataMetrics;
+    private final IngestLeaderService ingestLeaderService;
+    private final SharedSnapshotService sharedSnapshotService;
+    private final ObservationChangeDetector observationChangeDetector;
 
-    public WeatherDataService(RestClient restClient, StationRepository stationRepository) {
-        this.restClient = restClient;
+    public WeatherDataService(ObservationSource observationSource, StationRepository stationRepository,
+                              ObservationSnapshotService observationSnapshotService, WeatherDataMetrics weatherDataMetrics,
+                              IngestLeaderService ingestLeaderService, SharedSnapshotService sharedSnapshotService,
+                              ObservationChangeDetector observationChangeDetector) {
+        this.observationSource = observationSource;
         this.stationRepository = stationRepository;
+        this.observationSnapshotService = observationSnapshotService;
+        this.weatherDataMetrics = weatherDataMetrics;
+        this.ingestLeaderService = ingestLeaderService;
+        this.sharedSnapshotService = sharedSnapshotService;
+        this.observationChangeDetector = observationChangeDetector;
     }
 
     /**
-     * This method fetches weather data from a remote API, processes it, and saves relevant station data to the database.
-     * The retrieved observation data includes information about stations (cities and weather conditions)
-     * and their observations (timestamps)
-     * Only stations whose names are included in the predefined list of station names will be saved.
-     * The timestamp of the observation data is added to each station entity before saving.
+     * This method imports weather data from the configured {@link ObservationSource} as a pipeline of stages:
+     * <ol>
+     *     <li>fetch the latest observation and parse the tracked stations, by default from the remote weather service API,
+     *     see {@link HttpObservationSource},</li>
+     *     <li>dedupe the stations against the last stored observation of each station with {@link ObservationChangeDetector},
+     *     dropping observations that are not newer,</li>
+     *     <li>persist the changed stations in a single transaction using JDBC batch inserts,
+     *     so readers never see a partially saved observation set,</li>
+     *     <li>publish them to the observation snapshot used for fee calculation and share the snapshot with the other instances.</li>
+     * </ol>
+     * If no station has a newer observation, nothing is saved or published. Newer observations reporting the same weather
+     * are saved and published, but leave the fee caches and subscribers alone.
+     * In either case the source is told that the observation has been imported.
+     * The duration of every stage, the number of saved and unchanged stations and failed imports are recorded as metrics.
+     * Only the instance holding the ingest lease imports, and the other instances
+     * pick up the shared snapshot with {@link SharedSnapshotService#refresh()} instead of fetching themselves.
      * This method is scheduled to run at regular intervals based on the configured cron job frequency defined in appliaction.yaml.
      */
     @Scheduled(cron = "${cronjob.frequency}")
     public void getData() {
-        ObservationDto observationDto = restClient.get()
-                .uri(URL)
-                .accept(MediaType.APPLICATION_XML)
-                .retrieve()
-                .body(ObservationDto.class);
-
-        long timestamp = observationDto.getTimestamp();
-        observationDto.getStations().stream()
-                .filter(WeatherDataService::isShouldBeSaved)
-                .map(StationDto::convertToEntity)
-                .map(stationEntity -> stationEntity.toBuilder().timestamp(timestamp).build())
-                .forEach(stationEntity -> {log.debug("Saving entity: {}", stationEntity);
-                stationRepository.save(stationEntity);
-                });
+        if (!ingestLeaderService.tryAcquire()) {
+            log.debug("Skipping the import, another instance is the ingest leader");
+            return;
+        }
+        try {
+            importObservations();
+        } catch (RuntimeException e) {
+            weatherDataMetrics.recordFailure();
+            throw e;
+        }
+    }
+
+    private void importObservations() {
+        long start = System.nanoTime();
+        Optional<List<StationEntity>> fetched = observationSource.fetch();
+        start = recordStage(IngestStage.FETCH, start);
+        if (fetched.isEmpty()) {
+            log.debug("Observation data has not been modified since the last import");
+            weatherDataMetrics.recordNotModified();
+            return;
+        }
+
+        List<StationEntity> newer = observationChangeDetector.newer(fetched.get(),
+                observationSnapshotService.getSnapshot().getStations().values());
+        start = recordStage(IngestStage.DEDUPE, start);
+        weatherDataMetrics.recordStationsUnchanged(fetched.get().size() - newer.size());
+        if (newer.isEmpty()) {
+            log.debug("Observation data has not changed since the last import");
+            observationSource.onImported();
+            return;
+        }
+
+        log.debug("Saving entities: {}", newer);
+        List<StationEntity> stationEntities = stationRepository.saveAll(newer);
+        observationChangeDetector.stored(stationEntities);
+        weatherDataMetrics.recordStationsSaved(stationEntities.size());
+        start = recordStage(IngestStage.PERSIST, start);
+
+        observationSnapshotService.publish(stationEntities);
+        observationSource.onImported();
+        sharedSnapshotService.share(observationSnapshotService.getSnapshot());
+        recordStage(IngestStage.PUBLISH, start);
     }
 
     /**
-     * Determines whether the provided station should be saved.
-     *
-     * @param stationDto The StationDto object.
-     * @return {@code true} if the station should be saved, {@code false} otherwise.
+     * @return The end of the stage, which is the start of the next one.
      */
-    private static boolean isShouldBeSaved(StationDto stationDto) {
-        return City.STATION_NAMES.contains(stationDto.getStationName());
+    private long recordStage(IngestStage stage, long start) {
+        long end = System.nanoTime();
+        weatherDataMetrics.recordStage(stage, end - start);
+        return end;
     }
 
 }
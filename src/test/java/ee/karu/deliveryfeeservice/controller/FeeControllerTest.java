@@ -1,25 +1,44 @@
 package ee.karu.deliveryfeeservice.controller;
 
-import ee.karu.deliveryfeeservice.exception.ExtremeWeatherConditionException;
+import ee.karu.deliveryfeeservice.config.FeeBatchProperties;
+import ee.karu.deliveryfeeservice.config.FeeCacheProperties;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteRequestDto;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteResultDto;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
 import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
 import ee.karu.deliveryfeeservice.model.VehicleType;
 import ee.karu.deliveryfeeservice.service.FeeCalculationService;
+import ee.karu.deliveryfeeservice.service.FeeStreamService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(FeeController.class)
+@EnableConfigurationProperties({FeeCacheProperties.class, FeeBatchProperties.class})
 public class FeeControllerTest {
 
     @Autowired
@@ -28,11 +47,23 @@ public class FeeControllerTest {
     @MockBean
     private FeeCalculationService feeCalculationService;
 
+    @MockBean
+    private FeeStreamService feeStreamService;
+
+    @MockBean
+    private FeeMetrics feeMetrics;
+
+    @BeforeEach
+    public void init() {
+        when(feeCalculationService.getQuoteETag(any()))
+                .thenReturn("\"65ef017e-1a2b3c\"");
+    }
+
     @Test
     @DisplayName("Checks interaction between controller and service")
     public void calculateFeeTest() throws Exception {
-        when(feeCalculationService.calculateFee(City.TARTU, VehicleType.CAR))
-                .thenReturn(new BigDecimal("3.50"));
+        when(feeCalculationService.quoteFee(City.TARTU, VehicleType.CAR))
+                .thenReturn(new FeeQuote.Fee(new BigDecimal("3.50")));
 
         mockMvc.perform(get("/api/v1/fees/calculate")
                         .param("city", City.TARTU.name())
@@ -45,11 +76,11 @@ public class FeeControllerTest {
 
 
     @Test
-    @DisplayName("Checks whether the exception is correctly handled")
-    public void handleExceptionTest() throws Exception {
+    @DisplayName("Checks whether the forbidden vehicle type is correctly handled")
+    public void handleForbiddenTest() throws Exception {
         String exceptionMessage = "Usage of selected vehicle type is forbidden";
-        when(feeCalculationService.calculateFee(City.TARTU, VehicleType.BIKE))
-                .thenThrow(new ExtremeWeatherConditionException(exceptionMessage));
+        when(feeCalculationService.quoteFee(City.TARTU, VehicleType.BIKE))
+                .thenReturn(new FeeQuote.Forbidden(exceptionMessage));
 
         mockMvc.perform(get("/api/v1/fees/calculate")
                         .param("city", City.TARTU.name())
@@ -59,6 +90,176 @@ public class FeeControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.message").value(exceptionMessage))
                 .andExpect(jsonPath("$.status").value(HttpStatus.CONFLICT.value()));
+
+        verify(feeMetrics).recordForbidden(City.TARTU, VehicleType.BIKE);
     }
 
+    @Test
+    @DisplayName("Checks whether missing observation data is correctly handled")
+    public void handleNoDataTest() throws Exception {
+        when(feeCalculationService.quoteFee(City.PÄRNU, VehicleType.CAR))
+                .thenReturn(FeeQuote.NO_DATA);
+
+        mockMvc.perform(get("/api/v1/fees/calculate")
+                        .param("city", City.PÄRNU.name())
+                        .param("vehicleType", VehicleType.CAR.name())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value("Observation data not found"))
+                .andExpect(jsonPath("$.status").value(HttpStatus.NOT_FOUND.value()));
+    }
+
+    @Test
+    @DisplayName("Checks that current quotes carry an ETag and Cache-Control header")
+    public void calculateFeeCacheHeadersTest() throws Exception {
+        when(feeCalculationService.quoteFee(City.TARTU, VehicleType.CAR))
+                .thenReturn(new FeeQuote.Fee(new BigDecimal("3.50")));
+
+        mockMvc.perform(get("/api/v1/fees/calculate")
+                        .param("city", City.TARTU.name())
+                        .param("vehicleType", VehicleType.CAR.name()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"65ef017e-1a2b3c\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"));
+    }
+
+    @Test
+    @DisplayName("Checks that a matching If-None-Match is answered with 304 without calculating the fee")
+    public void calculateFeeNotModifiedTest() throws Exception {
+        mockMvc.perform(get("/api/v1/fees/calculate")
+                        .param("city", City.TARTU.name())
+                        .param("vehicleType", VehicleType.CAR.name())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"65eef36e-1a2b3c\", W/\"65ef017e-1a2b3c\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"65ef017e-1a2b3c\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+                .andExpect(content().string(""));
+
+        verify(feeCalculationService, never()).quoteFee(any(), any());
+    }
+
+    @Test
+    @DisplayName("Checks that a stale If-None-Match gets the new quote")
+    public void calculateFeeModifiedTest() throws Exception {
+        when(feeCalculationService.quoteFee(City.TARTU, VehicleType.CAR))
+                .thenReturn(new FeeQuote.Fee(new BigDecimal("3.50")));
+
+        mockMvc.perform(get("/api/v1/fees/calculate")
+                        .param("city", City.TARTU.name())
+                        .param("vehicleType", VehicleType.CAR.name())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"65eef36e-1a2b3c\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(3.5));
+    }
+
+    @Test
+    @DisplayName("Checks that a malformed If-None-Match is ignored and the quote is returned")
+    public void calculateFeeMalformedIfNoneMatchTest() throws Exception {
+        when(feeCalculationService.quoteFee(City.TARTU, VehicleType.CAR))
+                .thenReturn(new FeeQuote.Fee(new BigDecimal("3.50")));
+
+        mockMvc.perform(get("/api/v1/fees/calculate")
+                        .param("city", City.TARTU.name())
+                        .param("vehicleType", VehicleType.CAR.name())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"65ef017e-1a2b3c"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(3.5));
+    }
+
+    @Test
+    @DisplayName("Checks that the fee is calculated at the given instant")
+    public void calculateHistoricalFeeTest() throws Exception {
+        when(feeCalculationService.quoteFee(City.TARTU, VehicleType.CAR, Instant.parse("2024-03-01T12:00:00Z")))
+                .thenReturn(new FeeQuote.Fee(new BigDecimal("3.50")));
+
+        mockMvc.perform(get("/api/v1/fees/calculate")
+                        .param("city", City.TARTU.name())
+                        .param("vehicleType", VehicleType.CAR.name())
+                        .param("at", "2024-03-01T12:00:00Z")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(3.5));
+    }
+
+    @Test
+    @DisplayName("Checks that batch results are returned per item")
+    public void calculateFeesTest() throws Exception {
+        when(feeCalculationService.calculateFees(anyList()))
+                .thenReturn(List.of(
+                        FeeQuoteResultDto.of(FeeQuoteRequestDto.of(City.TARTU, VehicleType.CAR), new FeeQuote.Fee(new BigDecimal("3.50"))),
+                        FeeQuoteResultDto.of(FeeQuoteRequestDto.of(City.TALLINN, VehicleType.BIKE), new FeeQuote.Forbidden("Usage of selected vehicle type is forbidden")),
+                        FeeQuoteResultDto.of(FeeQuoteRequestDto.of(City.PÄRNU, VehicleType.CAR), FeeQuote.NO_DATA)
+                ));
+
+        mockMvc.perform(post("/api/v1/fees/calculate/batch")
+                        .content("""
+                                [
+                                  {"city": "TARTU", "vehicleType": "CAR"},
+                                  {"city": "TALLINN", "vehicleType": "BIKE"},
+                                  {"city": "PÄRNU", "vehicleType": "CAR"}
+                                ]
+                                """)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].fee").value(3.5))
+                .andExpect(jsonPath("$[0].status").value(HttpStatus.OK.value()))
+                .andExpect(jsonPath("$[1].message").value("Usage of selected vehicle type is forbidden"))
+                .andExpect(jsonPath("$[1].status").value(HttpStatus.CONFLICT.value()))
+                .andExpect(jsonPath("$[2].fee").doesNotExist())
+                .andExpect(jsonPath("$[2].status").value(HttpStatus.NOT_FOUND.value()));
+    }
+
+    @Test
+    @DisplayName("Checks that unknown cities and vehicle types are passed on to be reported per item")
+    public void calculateFeesUnknownCityTest() throws Exception {
+        when(feeCalculationService.calculateFees(anyList()))
+                .thenAnswer(invocation -> invocation.<List<FeeQuoteRequestDto>>getArgument(0).stream()
+                        .map(FeeQuoteResultDto::invalid)
+                        .toList());
+
+        mockMvc.perform(post("/api/v1/fees/calculate/batch")
+                        .content("""
+                                [
+                                  {"city": "RIGA", "vehicleType": "CAR"},
+                                  {"city": "TARTU", "vehicleType": "TRUCK"}
+                                ]
+                                """)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].city").value("RIGA"))
+                .andExpect(jsonPath("$[0].status").value(HttpStatus.BAD_REQUEST.value()))
+                .andExpect(jsonPath("$[1].city").value("TARTU"))
+                .andExpect(jsonPath("$[1].vehicleType").doesNotExist())
+                .andExpect(jsonPath("$[1].status").value(HttpStatus.BAD_REQUEST.value()));
+    }
+
+    @Test
+    @DisplayName("Checks that a batch larger than the maximum size is rejected")
+    public void calculateFeesTooLargeTest() throws Exception {
+        String item = "{\"city\": \"TARTU\", \"vehicleType\": \"CAR\"}";
+
+        mockMvc.perform(post("/api/v1/fees/calculate/batch")
+                        .content("[" + String.join(",", Collections.nCopies(1001, item)) + "]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("A batch may have at most 1000 items"));
+
+        verify(feeCalculationService, never()).calculateFees(anyList());
+    }
+
+    @Test
+    @DisplayName("Checks that the fee stream is opened as an asynchronous event stream of the city")
+    public void streamFeesTest() throws Exception {
+        when(feeStreamService.subscribe(City.TARTU))
+                .thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/v1/fees/stream")
+                        .param("city", City.TARTU.name())
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(feeStreamService).subscribe(City.TARTU);
+    }
 }
@@ -0,0 +1,137 @@
+package ee.karu.deliveryfeeservice.controller;
+
+import ee.karu.deliveryfeeservice.dto.FeeQuoteFrames;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import ee.karu.deliveryfeeservice.service.FeeCalculationService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(InternalFeeController.class)
+public class InternalFeeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FeeCalculationService feeCalculationService;
+
+    @MockBean
+    private FeeMetrics feeMetrics;
+
+    @Test
+    @DisplayName("Checks that a single request frame is answered with the fee in cents")
+    public void quoteTest() throws Exception {
+        when(feeCalculationService.quoteFee(City.TARTU, VehicleType.BIKE))
+                .thenReturn(new FeeQuote.Fee(new BigDecimal("4.00")));
+
+        byte[] result = mockMvc.perform(post("/internal/v1/fees/quote")
+                        .contentType(FeeQuoteFrames.MEDIA_TYPE)
+                        .content(requests(new FeeQuoteFrames.Request(City.TARTU, VehicleType.BIKE, null))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(FeeQuoteFrames.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(results(result)).containsExactly(new FeeQuoteFrames.Result(FeeQuoteFrames.FEE, 400));
+    }
+
+    @Test
+    @DisplayName("Checks that a body which is not exactly one request frame is rejected")
+    public void quoteMalformedTest() throws Exception {
+        byte[] request = requests(new FeeQuoteFrames.Request(City.TARTU, VehicleType.BIKE, null));
+
+        mockMvc.perform(post("/internal/v1/fees/quote")
+                        .contentType(FeeQuoteFrames.MEDIA_TYPE)
+                        .content(Arrays.copyOf(request, 3)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/internal/v1/fees/quote")
+                        .contentType(FeeQuoteFrames.MEDIA_TYPE)
+                        .content(Arrays.copyOf(request, 5)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Checks that a stream of request frames is answered with one result frame per request in order")
+    public void quoteStreamTest() throws Exception {
+        Instant at = Instant.parse("2024-03-11T13:00:00Z");
+        when(feeCalculationService.quoteFee(City.TALLINN, VehicleType.CAR))
+                .thenReturn(new FeeQuote.Fee(new BigDecimal("4.00")));
+        when(feeCalculationService.quoteFee(City.TARTU, VehicleType.BIKE))
+                .thenReturn(new FeeQuote.Forbidden("Usage of selected vehicle type is forbidden"));
+        when(feeCalculationService.quoteFee(City.PÄRNU, VehicleType.SCOOTER, at))
+                .thenReturn(FeeQuote.NO_DATA);
+        byte[] requests = requests(
+                new FeeQuoteFrames.Request(City.TALLINN, VehicleType.CAR, null),
+                new FeeQuoteFrames.Request(City.TARTU, VehicleType.BIKE, null),
+                new FeeQuoteFrames.Request(City.PÄRNU, VehicleType.SCOOTER, at));
+        byte[] unknownCity = {0x0f, (byte) 0xff, 0, 0};
+        byte[] instantOutOfRange = {0, 1, 0, 1, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+
+        byte[] result = mockMvc.perform(post("/internal/v1/fees/quote/stream")
+                        .contentType(FeeQuoteFrames.MEDIA_TYPE)
+                        .content(concat(concat(requests, unknownCity), concat(instantOutOfRange, requests))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(FeeQuoteFrames.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(results(result)).containsExactly(
+                new FeeQuoteFrames.Result(FeeQuoteFrames.FEE, 400),
+                new FeeQuoteFrames.Result(FeeQuoteFrames.FORBIDDEN, 0),
+                new FeeQuoteFrames.Result(FeeQuoteFrames.NO_DATA, 0),
+                new FeeQuoteFrames.Result(FeeQuoteFrames.INVALID, 0),
+                new FeeQuoteFrames.Result(FeeQuoteFrames.INVALID, 0),
+                new FeeQuoteFrames.Result(FeeQuoteFrames.FEE, 400),
+                new FeeQuoteFrames.Result(FeeQuoteFrames.FORBIDDEN, 0),
+                new FeeQuoteFrames.Result(FeeQuoteFrames.NO_DATA, 0));
+        verify(feeMetrics, times(2)).recordForbidden(City.TARTU, VehicleType.BIKE);
+    }
+
+    private static byte[] requests(FeeQuoteFrames.Request... requests) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (FeeQuoteFrames.Request request : requests) {
+            FeeQuoteFrames.writeRequest(output, request.city(), request.vehicleType(), request.at());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<FeeQuoteFrames.Result> results(byte[] bytes) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        List<FeeQuoteFrames.Result> results = new ArrayList<>();
+        while (input.available() > 0) {
+            results.add(FeeQuoteFrames.readResult(input));
+        }
+        return results;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,102 @@
+package ee.karu.deliveryfeeservice.controller;
+
+import ee.karu.deliveryfeeservice.DeliveryFeeServiceApplication;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteFrames;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import ee.karu.deliveryfeeservice.service.ObservationSnapshotService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application and checks that the internal fee endpoints are served over HTTP/2 on the internal port only,
+ * while the public port keeps serving HTTP/1.1.
+ */
+public class InternalFeePortTest {
+
+    @TempDir
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .build();
+
+    @BeforeEach
+    public void init() {
+        context = new SpringApplicationBuilder(DeliveryFeeServiceApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--internal.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:internal-port-test",
+                        "--observation.snapshot.file=" + directory.resolve("observation-snapshot.json"),
+                        "--observation.history.file=" + directory.resolve("observation-history.bin"),
+                        "--cronjob.frequency=-",
+                        "--retention.frequency=-",
+                        "--logging.level.root=WARN");
+        context.getBean(ObservationSnapshotService.class).publish(List.of(StationEntity.builder()
+                .city(City.TARTU)
+                .phenomenon("Light snow shower")
+                .airTemperature(-2.1)
+                .windSpeed(4.7)
+                .timestamp(Instant.now().getEpochSecond())
+                .build()));
+    }
+
+    @AfterEach
+    public void stop() {
+        context.close();
+    }
+
+    @Test
+    @DisplayName("Checks that the internal endpoint answers over HTTP/2 on the internal port and 404 on the public port")
+    public void internalPortTest() throws Exception {
+        String publicUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        String internalUrl = "http://localhost:" + context.getEnvironment().getProperty("local.internal.port");
+
+        HttpResponse<Void> publicHealth = client.send(HttpRequest.newBuilder(URI.create(publicUrl + "/actuator/health")).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        HttpResponse<Void> internalHealth = client.send(HttpRequest.newBuilder(URI.create(internalUrl + "/actuator/health")).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        HttpResponse<byte[]> publicQuote = client.send(quoteRequest(publicUrl), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> internalQuote = client.send(quoteRequest(internalUrl), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(context.getEnvironment().getProperty("local.internal.port"))
+                .isNotEqualTo(context.getEnvironment().getProperty("local.server.port"));
+        assertThat(publicHealth.version()).isEqualTo(HttpClient.Version.HTTP_1_1);
+        assertThat(internalHealth.version()).isEqualTo(HttpClient.Version.HTTP_2);
+        assertThat(publicQuote.statusCode()).isEqualTo(404);
+        assertThat(internalQuote.statusCode()).isEqualTo(200);
+        assertThat(FeeQuoteFrames.readResult(new DataInputStream(new ByteArrayInputStream(internalQuote.body()))))
+                .isEqualTo(new FeeQuoteFrames.Result(FeeQuoteFrames.FEE, 400));
+    }
+
+    private static HttpRequest quoteRequest(String baseUrl) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FeeQuoteFrames.writeRequest(new DataOutputStream(bytes), City.TARTU, VehicleType.BIKE, null);
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/internal/v1/fees/quote"))
+                .header("Content-Type", FeeQuoteFrames.MEDIA_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(bytes.toByteArray()))
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package ee.karu.deliveryfeeservice.loadtest;
+
+import ee.karu.deliveryfeeservice.DeliveryFeeServiceApplication;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import ee.karu.deliveryfeeservice.service.ObservationSnapshotService;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Closed-loop load test of GET /api/v1/fees/calculate, run once with platform and once with virtual request threads.
+ * Each run starts the application on a random port with an in-memory database and scheduled jobs disabled,
+ * then keeps {@code loadtest.concurrency} requests in flight for {@code loadtest.duration} after a warm-up.
+ * Excluded from the default build, run with {@code ./mvnw -Pload-test test}.
+ */
+@Tag("load")
+public class FeeApiLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 512);
+    private static final Duration DURATION = Duration.parse(System.getProperty("loadtest.duration", "PT20S"));
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+
+    @TempDir
+    private Path directory;
+
+    @ParameterizedTest(name = "{index}: virtual threads={0} ")
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Measures throughput and latency percentiles of the fee endpoint")
+    public void calculateFeeLoadTest(boolean virtualThreads) throws Exception {
+        if (virtualThreads) {
+            Assumptions.assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require Java 21");
+        }
+        try (ConfigurableApplicationContext context = start(virtualThreads, directory)) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            run(baseUrl, WARMUP);
+            Result result = run(baseUrl, DURATION);
+
+            System.out.printf("%s threads, concurrency %d: %.0f requests/s, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, %d errors%n",
+                    virtualThreads ? "virtual" : "platform", CONCURRENCY, result.throughput(),
+                    result.percentileMillis(50), result.percentileMillis(99), result.percentileMillis(99.9), result.errors());
+            assertThat(result.errors()).isZero();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtualThreads, Path directory) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DeliveryFeeServiceApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--internal.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:load-test-" + virtualThreads,
+                        "--observation.history.file=" + directory.resolve("observation-history.bin"),
+                        "--cronjob.frequency=-",
+                        "--retention.frequency=-",
+                        "--logging.level.root=WARN");
+        context.getBean(ObservationSnapshotService.class).publish(Arrays.stream(City.values())
+                .map(city -> StationEntity.builder()
+                        .city(city)
+                        .phenomenon("Light snow shower")
+                        .airTemperature(-5.3)
+                        .windSpeed(12.4)
+                        .timestamp(Instant.now().getEpochSecond())
+                        .build())
+                .toList());
+        return context;
+    }
+
+    private static Result run(String baseUrl, Duration duration) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        List<URI> uris = new ArrayList<>();
+        for (City city : City.values()) {
+            for (VehicleType vehicleType : VehicleType.values()) {
+                uris.add(URI.create(baseUrl + "/api/v1/fees/calculate?city=" + URLEncoder.encode(city.name(), StandardCharsets.UTF_8)
+                        + "&vehicleType=" + vehicleType));
+            }
+        }
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int worker = 0; worker < CONCURRENCY; worker++) {
+                int offset = worker;
+                workers.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = HttpRequest.newBuilder(uris.get((offset + count) % uris.size())).GET().build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200 && response.statusCode() != 409) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+            List<long[]> latencies = new ArrayList<>();
+            for (Future<long[]> worker : workers) {
+                latencies.add(worker.get());
+            }
+            return Result.of(latencies, duration, errors.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Result(long[] sortedLatencies, Duration duration, long errors) {
+
+        static Result of(List<long[]> latencies, Duration duration, long errors) {
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(all, duration, errors);
+        }
+
+        double throughput() {
+            return sortedLatencies.length / (duration.toNanos() / 1e9);
+        }
+
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
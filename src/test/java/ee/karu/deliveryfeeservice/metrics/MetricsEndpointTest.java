@@ -0,0 +1,38 @@
+package ee.karu.deliveryfeeservice.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("Checks that fee calculation and weather data metrics are exposed on the Prometheus endpoint")
+    public void prometheusEndpointTest() throws Exception {
+        mockMvc.perform(get("/api/v1/fees/calculate")
+                .param("city", "TARTU")
+                .param("vehicleType", "CAR"));
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("delivery_fee_calculation_seconds_bucket")))
+                .andExpect(content().string(containsString("weather_observation_age_seconds{")))
+                .andExpect(content().string(containsString("weather_observation_lookup_seconds_count")))
+                .andExpect(content().string(containsString("weather_ingest_failures_total")));
+    }
+}
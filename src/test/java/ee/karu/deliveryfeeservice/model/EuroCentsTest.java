@@ -0,0 +1,45 @@
+package ee.karu.deliveryfeeservice.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class EuroCentsTest {
+
+    @ParameterizedTest(name = "{index}: converts {0} cents to {1} euros ")
+    @CsvSource(textBlock = """
+                0, 0.00
+                50, 0.50
+                400, 4.00
+                10000, 100.00
+                10001, 100.01
+                -1, -0.01
+            """)
+    @DisplayName("Checks that cents are converted to euros with two decimals and back")
+    public void toEurosTest(long cents, String euros) {
+        assertThat(EuroCents.toEuros(cents)).isEqualTo(new BigDecimal(euros));
+        assertThat(EuroCents.toCents(new BigDecimal(euros))).isEqualTo(cents);
+    }
+
+    @Test
+    @DisplayName("Checks that cached amounts and fees are canonical instances")
+    public void cachedTest() {
+        assertThat(EuroCents.toEuros(350)).isSameAs(EuroCents.toEuros(350));
+        assertThat(FeeQuote.Fee.ofCents(350)).isSameAs(FeeQuote.Fee.ofCents(350));
+        assertThat(FeeQuote.Fee.ofCents(350).amount()).isSameAs(EuroCents.toEuros(350));
+        assertThat(FeeQuote.Fee.ofCents(EuroCents.CACHED_CENTS + 1)).isEqualTo(new FeeQuote.Fee(new BigDecimal("100.01")));
+    }
+
+    @Test
+    @DisplayName("Checks that amounts with fractions of a cent are rejected")
+    public void toCentsFractionTest() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> EuroCents.toCents(new BigDecimal("1.005")));
+    }
+}
@@ -0,0 +1,66 @@
+package ee.karu.deliveryfeeservice.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class PhenomenonKeywordTest {
+
+    @ParameterizedTest(name = "{index}: classifies phenomenon={0} ")
+    @CsvSource(textBlock = """
+                Light snow shower, SNOW
+                Moderate sleet, SLEET
+                Heavy rain, RAIN
+                Glaze, GLAZE
+                Hail, HAIL
+                Thunderstorm, THUNDER
+                Light snow and rain, SNOW RAIN
+                Clear, ''
+                '', ''
+            """)
+    @DisplayName("Checks that phenomena are classified into the keywords they contain, ignoring case")
+    public void classifyTest(String phenomenon, String keywords) {
+        Set<PhenomenonKeyword> expected = Arrays.stream(keywords.split(" "))
+                .filter(keyword -> !keyword.isEmpty())
+                .map(PhenomenonKeyword::valueOf)
+                .collect(Collectors.toSet());
+        int flags = PhenomenonKeyword.classify(phenomenon);
+
+        assertThat(Arrays.stream(PhenomenonKeyword.values()).filter(keyword -> (flags & keyword.mask()) != 0))
+                .containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("Checks that a missing phenomenon is classified as no keywords")
+    public void classifyNullTest() {
+        assertThat(PhenomenonKeyword.classify(null)).isZero();
+    }
+
+    @Test
+    @DisplayName("Checks that keywords are found by their text and unknown keywords are rejected")
+    public void fromKeywordTest() {
+        assertThat(PhenomenonKeyword.fromKeyword("Snow")).isEqualTo(PhenomenonKeyword.SNOW);
+        assertThatIllegalArgumentException().isThrownBy(() -> PhenomenonKeyword.fromKeyword("drizzle"));
+    }
+
+    @Test
+    @DisplayName("Checks that the station entity keeps the phenomenon classification in sync with the phenomenon")
+    public void stationEntityClassificationTest() {
+        StationEntity station = StationEntity.builder()
+                .phenomenon("Light snow shower")
+                .build();
+        assertThat(station.getPhenomenonFlags()).isEqualTo(PhenomenonKeyword.SNOW.mask());
+
+        station.setPhenomenon("Glaze");
+        assertThat(station.getPhenomenonFlags()).isEqualTo(PhenomenonKeyword.GLAZE.mask());
+        assertThat(station.toBuilder().build().getPhenomenonFlags()).isEqualTo(PhenomenonKeyword.GLAZE.mask());
+    }
+}
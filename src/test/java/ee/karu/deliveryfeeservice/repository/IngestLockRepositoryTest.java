@@ -0,0 +1,60 @@
+package ee.karu.deliveryfeeservice.repository;
+
+import ee.karu.deliveryfeeservice.model.IngestLockEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every statement runs in its own transaction, as the instances competing for the lock would.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IngestLockRepositoryTest {
+
+    private static final String LOCK_NAME = "weather-ingest";
+
+    @Autowired
+    private IngestLockRepository ingestLockRepository;
+
+    @AfterEach
+    public void cleanUp() {
+        ingestLockRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Checks that the lock row is created only if it does not exist and an existing lease is kept")
+    public void createIfAbsentTest() {
+        assertThat(ingestLockRepository.createIfAbsent(LOCK_NAME)).isOne();
+        assertThat(ingestLockRepository.renewOrTakeOver(LOCK_NAME, "a", 2000, 1000)).isOne();
+
+        assertThat(ingestLockRepository.createIfAbsent(LOCK_NAME)).isZero();
+        assertThat(ingestLockRepository.findById(LOCK_NAME))
+                .get()
+                .extracting(IngestLockEntity::getOwner, IngestLockEntity::getExpiresAt)
+                .containsExactly("a", 2000L);
+    }
+
+    @Test
+    @DisplayName("Checks that the owner renews its lease and others take over only an expired lease")
+    public void renewOrTakeOverTest() {
+        assertThat(ingestLockRepository.renewOrTakeOver(LOCK_NAME, "a", 2000, 1000)).isZero();
+        ingestLockRepository.createIfAbsent(LOCK_NAME);
+        assertThat(ingestLockRepository.renewOrTakeOver(LOCK_NAME, "a", 2000, 1000)).isOne();
+
+        assertThat(ingestLockRepository.renewOrTakeOver(LOCK_NAME, "b", 2500, 1500)).isZero();
+        assertThat(ingestLockRepository.renewOrTakeOver(LOCK_NAME, "a", 3000, 1500)).isOne();
+        assertThat(ingestLockRepository.renewOrTakeOver(LOCK_NAME, "b", 3500, 2999)).isZero();
+        assertThat(ingestLockRepository.renewOrTakeOver(LOCK_NAME, "b", 4000, 3001)).isOne();
+        assertThat(ingestLockRepository.findById(LOCK_NAME))
+                .get()
+                .extracting(IngestLockEntity::getOwner, IngestLockEntity::getExpiresAt)
+                .containsExactly("b", 4000L);
+    }
+}
@@ -0,0 +1,92 @@
+package ee.karu.deliveryfeeservice.repository;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The latency test loads a million rows and is tagged "performance", excluded from the default build.
+ * Run with {@code ./mvnw -Pperformance-test test}. The query plan check runs in the default build.
+ */
+@DataJpaTest
+public class StationRepositoryPerformanceTest {
+
+    private static final int LOOKUPS = 500;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("Checks that the latest observation lookup reads the city and timestamp index in order")
+    public void getFirstByCityOrderByTimestampDescIndexTest() {
+        insertRows(1, 1_000);
+
+        assertThat(explainLatestLookup())
+                .containsIgnoringCase("IDX_STATION_CITY_TIMESTAMP")
+                .containsIgnoringCase("index sorted");
+    }
+
+    @Test
+    @Tag("performance")
+    @DisplayName("Checks that latest observation lookup latency stays flat with a million rows loaded")
+    public void getFirstByCityOrderByTimestampDescLatencyTest() {
+        insertRows(1, 1_000);
+        long smallTableNanos = medianLookupNanos();
+
+        insertRows(1_001, 1_000_000);
+        long largeTableNanos = medianLookupNanos();
+
+        assertThat(stationRepository.getFirstByCityOrderByTimestampDesc(City.TARTU))
+                .get()
+                .extracting(StationEntity::getTimestamp)
+                .isEqualTo(1_000_000L);
+        assertThat(largeTableNanos)
+                .as("median lookup with 1k rows %d ns and 1M rows %d ns", smallTableNanos, largeTableNanos)
+                .isLessThan(Math.max(smallTableNanos * 5, 2_000_000L));
+    }
+
+    /**
+     * Inserts rows with timestamps equal to their ids, the city of a row is its id modulo 3.
+     */
+    private void insertRows(int from, int to) {
+        entityManager.createNativeQuery("""
+                        INSERT INTO station (id, city, wmo_code, phenomenon, air_temperature, wind_speed, timestamp)
+                        SELECT X, MOD(X, 3), 26038, 'Clear', 1.0, 2.0, X FROM SYSTEM_RANGE(:from, :to)
+                        """)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    private long medianLookupNanos() {
+        long[] durations = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            City city = City.values()[i % City.values().length];
+            long start = System.nanoTime();
+            stationRepository.getFirstByCityOrderByTimestampDesc(city);
+            durations[i] = System.nanoTime() - start;
+            entityManager.clear();
+        }
+        Arrays.sort(durations);
+        return durations[LOOKUPS / 2];
+    }
+
+    private String explainLatestLookup() {
+        return String.valueOf(entityManager.createNativeQuery(
+                        "EXPLAIN SELECT * FROM station WHERE city = 1 ORDER BY city, timestamp DESC FETCH FIRST 1 ROWS ONLY")
+                .getSingleResult());
+    }
+}
@@ -48,6 +48,41 @@ public class StationRepositoryTest {
                 .isEmpty();
     }
 
+    @Test
+    @DisplayName("Checks that the observation in force at a timestamp is returned")
+    public void getFirstByCityAndTimestampLessThanEqualTest() {
+        stationRepository.saveAll(List.of(
+                createStationEntity(1L, City.TARTU, 1L),
+                createStationEntity(2L, City.TALLINN, 2L),
+                createStationEntity(3L, City.TARTU, 3L),
+                createStationEntity(4L, City.TARTU, 5L)
+        ));
+
+        assertThat(stationRepository.getFirstByCityAndTimestampLessThanEqualOrderByCityAscTimestampDesc(City.TARTU, 4L))
+                .get()
+                .extracting(StationEntity::getTimestamp)
+                .isEqualTo(3L);
+        assertThat(stationRepository.getFirstByCityAndTimestampLessThanEqualOrderByCityAscTimestampDesc(City.TALLINN, 1L))
+                .isEmpty();
+    }
+
+    @Test
+    @DisplayName("Checks that old observations are deleted in bounded batches")
+    public void deleteOlderThanTest() {
+        stationRepository.saveAll(List.of(
+                createStationEntity(1L, City.TARTU, 1L),
+                createStationEntity(2L, City.TALLINN, 2L),
+                createStationEntity(3L, City.PÄRNU, 3L),
+                createStationEntity(4L, City.TARTU, 4L)
+        ));
+
+        assertThat(stationRepository.deleteOlderThan(4L, 2)).isEqualTo(2);
+        assertThat(stationRepository.deleteOlderThan(4L, 2)).isEqualTo(1);
+        assertThat(stationRepository.findAll())
+                .extracting(StationEntity::getTimestamp)
+                .containsExactly(4L);
+    }
+
     private static StationEntity createStationEntity(long id, City city, long timestamp) {
         return StationEntity.builder()
                 .id(id)
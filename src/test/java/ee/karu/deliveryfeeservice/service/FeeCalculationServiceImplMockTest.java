@@ -1,35 +1,57 @@
 package ee.karu.deliveryfeeservice.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteRequestDto;
+import ee.karu.deliveryfeeservice.dto.FeeQuoteResultDto;
+import ee.karu.deliveryfeeservice.event.ObservationSnapshotPublishedEvent;
 import ee.karu.deliveryfeeservice.exception.ExtremeWeatherConditionException;
+import ee.karu.deliveryfeeservice.exception.NoSuchObservationDataException;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
 import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
 import ee.karu.deliveryfeeservice.model.StationEntity;
 import ee.karu.deliveryfeeservice.model.VehicleType;
-import ee.karu.deliveryfeeservice.repository.StationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class FeeCalculationServiceImplMockTest {
 
     @Mock
-    private StationRepository stationRepository;
+    private ObservationSnapshotService observationSnapshotService;
+    @Mock
+    private ObservationHistoryService observationHistoryService;
     private FeeCalculationServiceImpl feeCalculationService;
 
     @BeforeEach
     public void init() {
-        feeCalculationService = new FeeCalculationServiceImpl(stationRepository);
+        when(observationSnapshotService.getSnapshot())
+                .thenReturn(ObservationSnapshot.EMPTY);
+        feeCalculationService = new FeeCalculationServiceImpl(observationSnapshotService, new FeeRulesService(
+                new FeeRulesProperties(new ClassPathResource("fee-rules.json")), new ObjectMapper(), event -> {
+        }), observationHistoryService, new FeeMetrics(new SimpleMeterRegistry()), event -> {
+        });
     }
 
     @ParameterizedTest(name = "{index}: calculates total delivery fee for city={0}, vehicle={1}, air temperature={2}" +
@@ -48,12 +70,12 @@ public class FeeCalculationServiceImplMockTest {
     @DisplayName("Test calculates total delivery fee")
     public void calculateFeeTest(City city, VehicleType vehicleType, double airTemperature, double windSpeed, String phenomenon, BigDecimal fee) {
         StationEntity station = StationEntity.builder()
+                .city(city)
                 .airTemperature(airTemperature)
                 .windSpeed(windSpeed)
                 .phenomenon(phenomenon)
                 .build();
-        when(stationRepository.getFirstByCityOrderByTimestampDesc(city))
-                .thenReturn(Optional.of(station));
+        publishSnapshot(ObservationSnapshot.of(List.of(station), Instant.now()));
 
         assertThat(feeCalculationService.calculateFee(city, vehicleType))
                 .isEqualTo(fee);
@@ -72,16 +94,220 @@ public class FeeCalculationServiceImplMockTest {
     @DisplayName("Test checks if the exception is thrown")
     public void calculateFeeExceptionTest(City city, VehicleType vehicleType, double airTemperature, double windSpeed, String phenomenon) {
         StationEntity station = StationEntity.builder()
+                .city(city)
                 .airTemperature(airTemperature)
                 .windSpeed(windSpeed)
                 .phenomenon(phenomenon)
                 .build();
-        when(stationRepository.getFirstByCityOrderByTimestampDesc(city))
-                .thenReturn(Optional.of(station));
+        publishSnapshot(ObservationSnapshot.of(List.of(station), Instant.now()));
 
         assertThatExceptionOfType(ExtremeWeatherConditionException.class)
                 .isThrownBy(() -> feeCalculationService.calculateFee(city, vehicleType))
                 .withMessage("Usage of selected vehicle type is forbidden");
     }
 
+    @Test
+    @DisplayName("Test checks if the exception is thrown when the snapshot has no data for the city")
+    public void calculateFeeNoDataTest() {
+        publishSnapshot(ObservationSnapshot.EMPTY);
+
+        assertThatExceptionOfType(NoSuchObservationDataException.class)
+                .isThrownBy(() -> feeCalculationService.calculateFee(City.TARTU, VehicleType.CAR));
+    }
+
+    @Test
+    @DisplayName("Test checks that forbidden and no data outcomes are returned without exceptions")
+    public void quoteFeeTest() {
+        publishSnapshot(ObservationSnapshot.of(List.of(
+                StationEntity.builder()
+                        .city(City.TARTU)
+                        .airTemperature(5)
+                        .windSpeed(3)
+                        .phenomenon("Thunder")
+                        .build()
+        ), Instant.now()));
+
+        assertThat(feeCalculationService.quoteFee(City.TARTU, VehicleType.CAR))
+                .isEqualTo(new FeeQuote.Fee(new BigDecimal("3.50")));
+        assertThat(feeCalculationService.quoteFee(City.TARTU, VehicleType.SCOOTER))
+                .isEqualTo(new FeeQuote.Forbidden("Usage of selected vehicle type is forbidden"));
+        assertThat(feeCalculationService.quoteFee(City.TALLINN, VehicleType.CAR))
+                .isEqualTo(FeeQuote.NO_DATA);
+    }
+
+    @Test
+    @DisplayName("Test checks that batch results are reported per item")
+    public void calculateFeesTest() {
+        publishSnapshot(ObservationSnapshot.of(List.of(
+                StationEntity.builder()
+                        .city(City.TALLINN)
+                        .airTemperature(-1)
+                        .windSpeed(25)
+                        .phenomenon("Light rain")
+                        .build()
+        ), Instant.now()));
+
+        List<FeeQuoteResultDto> results = feeCalculationService.calculateFees(List.of(
+                FeeQuoteRequestDto.of(City.TALLINN, VehicleType.CAR),
+                FeeQuoteRequestDto.of(City.TALLINN, VehicleType.BIKE),
+                FeeQuoteRequestDto.of(City.TARTU, VehicleType.CAR),
+                FeeQuoteRequestDto.of(null, VehicleType.CAR),
+                new FeeQuoteRequestDto("RIGA", VehicleType.CAR, null)
+        ));
+
+        assertThat(results)
+                .extracting(FeeQuoteResultDto::getStatus)
+                .containsExactly(200, 409, 404, 400, 400);
+        assertThat(results.get(4).getCity()).isEqualTo("RIGA");
+        assertThat(results.get(0).getFee()).isEqualTo(new BigDecimal("4.00"));
+    }
+
+    @Test
+    @DisplayName("Test checks that batch items of a city missing from the snapshot share one lookup of its latest observation")
+    public void calculateFeesLoadsMissingStationTest() {
+        StationEntity station = StationEntity.builder()
+                .city(City.TARTU)
+                .airTemperature(-2.1)
+                .windSpeed(4.7)
+                .phenomenon("Light snow shower")
+                .timestamp(1000)
+                .build();
+        when(observationSnapshotService.loadLatestStation(City.TARTU))
+                .thenAnswer(invocation -> {
+                    publishSnapshot(ObservationSnapshot.of(List.of(station), Instant.now()));
+                    return Optional.of(station);
+                });
+        when(observationSnapshotService.loadLatestStation(City.TALLINN))
+                .thenReturn(Optional.empty());
+
+        List<FeeQuoteResultDto> results = feeCalculationService.calculateFees(List.of(
+                FeeQuoteRequestDto.of(City.TARTU, VehicleType.BIKE),
+                FeeQuoteRequestDto.of(City.TARTU, VehicleType.CAR),
+                FeeQuoteRequestDto.of(City.TALLINN, VehicleType.CAR)
+        ));
+
+        assertThat(results)
+                .extracting(FeeQuoteResultDto::getStatus)
+                .containsExactly(200, 200, 404);
+        assertThat(results.get(0).getFee()).isEqualTo(new BigDecimal("4.00"));
+        verify(observationSnapshotService).loadLatestStation(City.TARTU);
+        verify(observationSnapshotService).loadLatestStation(City.TALLINN);
+    }
+
+    @Test
+    @DisplayName("Test checks that a snapshot delivered out of order does not replace newer observations")
+    public void onObservationSnapshotPublishedOutOfOrderTest() {
+        StationEntity tartu = StationEntity.builder()
+                .city(City.TARTU)
+                .airTemperature(-2.1)
+                .windSpeed(4.7)
+                .phenomenon("Light snow shower")
+                .timestamp(1000)
+                .build();
+        StationEntity tallinn = tartu.toBuilder().city(City.TALLINN).build();
+        ObservationSnapshot older = ObservationSnapshot.of(List.of(tartu), Instant.now());
+        ObservationSnapshot newer = older.merge(List.of(tallinn), Instant.now());
+
+        publishSnapshot(newer);
+        publishSnapshot(older);
+
+        assertThat(feeCalculationService.getFeeMatrix().getSnapshot()).isSameAs(newer);
+        assertThat(feeCalculationService.quoteFee(City.TALLINN, VehicleType.CAR))
+                .isEqualTo(new FeeQuote.Fee(new BigDecimal("4.00")));
+
+        publishSnapshot(ObservationSnapshot.of(List.of(tartu.toBuilder().timestamp(2000).windSpeed(12).build()), Instant.now()));
+
+        assertThat(feeCalculationService.getFeeMatrix().getSnapshot().getStations()).containsOnlyKeys(City.TALLINN, City.TARTU);
+        assertThat(feeCalculationService.calculateFee(City.TARTU, VehicleType.BIKE)).isEqualTo(new BigDecimal("4.50"));
+    }
+
+    @Test
+    @DisplayName("Test checks that historical fees are calculated against the observation in force at the instant")
+    public void calculateHistoricalFeeTest() {
+        Instant at = Instant.parse("2024-03-01T12:00:00Z");
+        when(observationHistoryService.getStationAt(City.TARTU, at))
+                .thenReturn(Optional.of(StationEntity.builder()
+                        .city(City.TARTU)
+                        .airTemperature(-11)
+                        .windSpeed(15)
+                        .phenomenon("Drifting snow")
+                        .build()));
+        when(observationHistoryService.getStationAt(City.TALLINN, at))
+                .thenReturn(Optional.empty());
+
+        assertThat(feeCalculationService.calculateFee(City.TARTU, VehicleType.SCOOTER, at))
+                .isEqualTo(new BigDecimal("5.00"));
+        assertThat(feeCalculationService.quoteFee(City.TARTU, VehicleType.BIKE, at))
+                .isEqualTo(new FeeQuote.Fee(new BigDecimal("5.00")));
+        assertThatExceptionOfType(NoSuchObservationDataException.class)
+                .isThrownBy(() -> feeCalculationService.calculateFee(City.TALLINN, VehicleType.CAR, at));
+    }
+
+    @Test
+    @DisplayName("Test checks that batch items with an instant are priced against historical observations")
+    public void calculateHistoricalFeesTest() {
+        Instant at = Instant.parse("2024-03-01T12:00:00Z");
+        publishSnapshot(ObservationSnapshot.of(List.of(
+                StationEntity.builder()
+                        .city(City.TARTU)
+                        .airTemperature(10)
+                        .phenomenon("Clear")
+                        .build()
+        ), Instant.now()));
+        when(observationHistoryService.getStationAt(City.TARTU, at))
+                .thenReturn(Optional.of(StationEntity.builder()
+                        .city(City.TARTU)
+                        .airTemperature(5)
+                        .windSpeed(25)
+                        .phenomenon("Clear")
+                        .build()));
+
+        List<FeeQuoteResultDto> results = feeCalculationService.calculateFees(List.of(
+                FeeQuoteRequestDto.of(City.TARTU, VehicleType.BIKE),
+                FeeQuoteRequestDto.of(City.TARTU, VehicleType.BIKE, at)
+        ));
+
+        assertThat(results)
+                .extracting(FeeQuoteResultDto::getStatus)
+                .containsExactly(200, 409);
+        assertThat(results.get(1).getAt()).isEqualTo(at);
+    }
+
+    @Test
+    @DisplayName("Test checks that a newer observation with the same weather keeps the fee matrix and its entity tags")
+    public void onObservationSnapshotPublishedSameWeatherTest() {
+        List<Object> events = new ArrayList<>();
+        FeeCalculationServiceImpl service = new FeeCalculationServiceImpl(observationSnapshotService, new FeeRulesService(
+                new FeeRulesProperties(new ClassPathResource("fee-rules.json")), new ObjectMapper(), event -> {
+        }), observationHistoryService, new FeeMetrics(new SimpleMeterRegistry()), events::add);
+        StationEntity station = StationEntity.builder()
+                .city(City.TARTU)
+                .airTemperature(-2.1)
+                .windSpeed(4.7)
+                .phenomenon("Light snow shower")
+                .timestamp(1000)
+                .build();
+        service.onObservationSnapshotPublished(new ObservationSnapshotPublishedEvent(
+                ObservationSnapshot.of(List.of(station), Instant.now())));
+        String eTag = service.getQuoteETag(City.TARTU);
+
+        ObservationSnapshot newer = ObservationSnapshot.of(List.of(station.toBuilder().timestamp(2000).build()), Instant.now());
+        service.onObservationSnapshotPublished(new ObservationSnapshotPublishedEvent(newer));
+
+        assertThat(events).hasSize(1);
+        assertThat(service.getQuoteETag(City.TARTU)).isEqualTo(eTag);
+        assertThat(service.getFeeMatrix().getSnapshot()).isSameAs(newer);
+
+        service.onObservationSnapshotPublished(new ObservationSnapshotPublishedEvent(ObservationSnapshot.of(
+                List.of(station.toBuilder().timestamp(3000).windSpeed(12).build()), Instant.now())));
+
+        assertThat(events).hasSize(2);
+        assertThat(service.getQuoteETag(City.TARTU)).isNotEqualTo(eTag);
+        assertThat(service.calculateFee(City.TARTU, VehicleType.BIKE)).isEqualTo(new BigDecimal("4.50"));
+    }
+
+    private void publishSnapshot(ObservationSnapshot snapshot) {
+        feeCalculationService.onObservationSnapshotPublished(new ObservationSnapshotPublishedEvent(snapshot));
+    }
+
 }
@@ -1,11 +1,15 @@
 package ee.karu.deliveryfeeservice.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
 import ee.karu.deliveryfeeservice.exception.ExtremeWeatherConditionException;
 import ee.karu.deliveryfeeservice.model.City;
 import ee.karu.deliveryfeeservice.model.VehicleType;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.core.io.ClassPathResource;
 
 import java.math.BigDecimal;
 
@@ -14,6 +18,10 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOf
 
 public class FeeCalculationServiceImplUnitTest {
 
+    private static final CompiledFeeRules DEFAULT_RULES = new FeeRulesService(
+            new FeeRulesProperties(new ClassPathResource("fee-rules.json")), new ObjectMapper(), event -> {
+    }).getRules();
+
     @ParameterizedTest(name = "{index}: calculates regional base fee (RBF) for city={0} and vehicle={1} ")
     @CsvSource(textBlock = """
                 TALLINN, CAR, 4.00
@@ -28,7 +36,7 @@ public class FeeCalculationServiceImplUnitTest {
             """)
     @DisplayName("Test calculates regional base fee (RBF) in case City is Tallinn, Tartu or Pärnu")
     public void calculateRbfTest(City city, VehicleType vehicleType, BigDecimal fee) {
-        assertThat(FeeCalculationServiceImpl.calculateRBF(city, vehicleType))
+        assertThat(FeeCalculationServiceImpl.calculateRBF(DEFAULT_RULES, city, vehicleType))
                 .isEqualTo(fee);
     }
 
@@ -106,4 +114,11 @@ public class FeeCalculationServiceImplUnitTest {
                 .isThrownBy(() -> FeeCalculationServiceImpl.calculateWPEF(vehicleType, phenomenon))
                 .withMessage("Usage of selected vehicle type is forbidden");
     }
+
+    @Test
+    @DisplayName("Test checks that a missing weather phenomenon adds no extra fee")
+    public void calculateWpefNullPhenomenonTest() {
+        assertThat(FeeCalculationServiceImpl.calculateWPEF(VehicleType.BIKE, null))
+                .isEqualTo(new BigDecimal("0.00"));
+    }
 }
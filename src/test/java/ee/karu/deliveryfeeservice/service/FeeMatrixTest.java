@@ -0,0 +1,112 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
+import ee.karu.deliveryfeeservice.exception.ExtremeWeatherConditionException;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FeeMatrixTest {
+
+    private static final double[] AIR_TEMPERATURES = {-30, -10.1, -10, -5, 0, 0.1, 14};
+    private static final double[] WIND_SPEEDS = {0, 9.9, 10, 15, 20, 20.1, 25};
+    private static final List<String> PHENOMENA = List.of(
+            "", "Clear", "Few clouds", "Light snow shower", "Moderate sleet", "Blowing snow", "Light rain",
+            "Heavy rain", "Glaze", "Hail", "Thunder", "Thunderstorm", "Mist"
+    );
+
+    private static final CompiledFeeRules DEFAULT_RULES = new FeeRulesService(
+            new FeeRulesProperties(new ClassPathResource("fee-rules.json")), new ObjectMapper(), event -> {
+    }).getRules();
+
+    @ParameterizedTest(name = "{index}: checks fee matrix parity for air temperature={0}, wind speed={1} and phenomenon={2} ")
+    @MethodSource("weatherConditions")
+    @DisplayName("Test checks that every matrix cell built from the default rules file matches the fee calculation rules")
+    public void feeMatrixParityTest(double airTemperature, double windSpeed, String phenomenon) {
+        List<StationEntity> stations = Arrays.stream(City.values())
+                .map(city -> StationEntity.builder()
+                        .city(city)
+                        .airTemperature(airTemperature)
+                        .windSpeed(windSpeed)
+                        .phenomenon(phenomenon)
+                        .build())
+                .toList();
+        FeeMatrix feeMatrix = FeeMatrix.of(ObservationSnapshot.of(stations, Instant.now()), DEFAULT_RULES);
+
+        for (City city : City.values()) {
+            for (VehicleType vehicleType : VehicleType.values()) {
+                assertThat(feeMatrix.get(city, vehicleType))
+                        .as("%s %s", city, vehicleType)
+                        .isEqualTo(expectedQuote(city, vehicleType, airTemperature, windSpeed, phenomenon));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test checks that cities without observation data have no data outcome")
+    public void feeMatrixNoDataTest() {
+        StationEntity station = StationEntity.builder()
+                .city(City.TARTU)
+                .phenomenon("Clear")
+                .airTemperature(5)
+                .build();
+        FeeMatrix feeMatrix = FeeMatrix.of(ObservationSnapshot.of(List.of(station), Instant.now()), DEFAULT_RULES);
+
+        assertThat(feeMatrix.get(City.TALLINN, VehicleType.CAR)).isEqualTo(FeeQuote.NO_DATA);
+        assertThat(feeMatrix.get(City.TARTU, VehicleType.CAR)).isInstanceOf(FeeQuote.Fee.class);
+    }
+
+    @Test
+    @DisplayName("Test checks that entity tags change with the observation timestamp but not with the snapshot")
+    public void feeMatrixETagTest() {
+        StationEntity station = StationEntity.builder()
+                .city(City.TARTU)
+                .timestamp(1710162302L)
+                .build();
+        FeeMatrix feeMatrix = FeeMatrix.of(ObservationSnapshot.of(List.of(station), Instant.now()), DEFAULT_RULES);
+        FeeMatrix rebuilt = FeeMatrix.of(ObservationSnapshot.of(List.of(station), Instant.now()), DEFAULT_RULES);
+        FeeMatrix updated = FeeMatrix.of(ObservationSnapshot.of(List.of(station.toBuilder().timestamp(1710165902L).build()),
+                Instant.now()), DEFAULT_RULES);
+
+        assertThat(feeMatrix.getETag(City.TARTU))
+                .isEqualTo(rebuilt.getETag(City.TARTU))
+                .isNotEqualTo(updated.getETag(City.TARTU))
+                .isNotEqualTo(feeMatrix.getETag(City.TALLINN))
+                .startsWith("\"65ef017e-").endsWith(DEFAULT_RULES.getVersion() + "\"");
+    }
+
+    private static Stream<Arguments> weatherConditions() {
+        return Arrays.stream(AIR_TEMPERATURES).boxed()
+                .flatMap(airTemperature -> Arrays.stream(WIND_SPEEDS).boxed()
+                        .flatMap(windSpeed -> PHENOMENA.stream()
+                                .map(phenomenon -> Arguments.of(airTemperature, windSpeed, phenomenon))));
+    }
+
+    private static FeeQuote expectedQuote(City city, VehicleType vehicleType, double airTemperature,
+                                          double windSpeed, String phenomenon) {
+        try {
+            return new FeeQuote.Fee(FeeCalculationServiceImpl.calculateRBF(DEFAULT_RULES, city, vehicleType)
+                    .add(FeeCalculationServiceImpl.calculateATEF(vehicleType, airTemperature))
+                    .add(FeeCalculationServiceImpl.calculateWSEF(vehicleType, windSpeed))
+                    .add(FeeCalculationServiceImpl.calculateWPEF(vehicleType, phenomenon)));
+        } catch (ExtremeWeatherConditionException e) {
+            return new FeeQuote.Forbidden(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
+import ee.karu.deliveryfeeservice.event.FeeRulesReloadedEvent;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.PhenomenonKeyword;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class FeeRulesServiceTest {
+
+    @TempDir
+    private Path tempDir;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private Path rulesFile;
+    private String defaultRules;
+    private FeeRulesService feeRulesService;
+
+    @BeforeEach
+    public void init() throws IOException {
+        try (InputStream inputStream = new ClassPathResource("fee-rules.json").getInputStream()) {
+            defaultRules = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        rulesFile = tempDir.resolve("fee-rules.json");
+        Files.writeString(rulesFile, defaultRules);
+        feeRulesService = new FeeRulesService(new FeeRulesProperties(new FileSystemResource(rulesFile)),
+                new ObjectMapper(), eventPublisher);
+    }
+
+    @ParameterizedTest(name = "{index}: evaluates fee for city={0}, vehicle={1}, air temperature={2}" +
+            ", wind speed={3} and phenomenon={4} ")
+    @CsvSource(textBlock = """
+                TALLINN, CAR, -30, 21, Light snowfall, 400
+                TALLINN, SCOOTER, -1, 10, Moderate sleet, 500
+                TARTU, BIKE, -2.1, 4.7, Light snow shower, 400
+                PÄRNU, BIKE, 5, 20.1, Clear, -1
+                PÄRNU, SCOOTER, 5, 0, Thunder, -1
+                PÄRNU, SCOOTER, 5, 0, Thunderstorm with rain, 300
+            """)
+    @DisplayName("Checks that the default rules are evaluated in euro cents")
+    public void evaluateTest(City city, VehicleType vehicleType, double airTemperature, double windSpeed,
+                             String phenomenon, long cents) {
+        assertThat(feeRulesService.getRules().evaluate(city, vehicleType, airTemperature, windSpeed,
+                PhenomenonKeyword.classify(phenomenon)))
+                .isEqualTo(cents);
+    }
+
+    @Test
+    @DisplayName("Checks that a modified rules file replaces the rules and notifies listeners")
+    public void reloadIfModifiedTest() throws IOException {
+        CompiledFeeRules previous = feeRulesService.getRules();
+        Files.writeString(rulesFile, defaultRules.replace("\"CAR\": \"4.00\"", "\"CAR\": \"4.20\""));
+        Files.setLastModifiedTime(rulesFile, FileTime.from(Instant.now().plusSeconds(60)));
+
+        feeRulesService.reloadIfModified();
+
+        assertThat(feeRulesService.getRules()).isNotSameAs(previous);
+        assertThat(feeRulesService.getRules().evaluate(City.TALLINN, VehicleType.CAR, 5, 0, 0))
+                .isEqualTo(420);
+        verify(eventPublisher).publishEvent(new FeeRulesReloadedEvent(feeRulesService.getRules()));
+    }
+
+    @Test
+    @DisplayName("Checks that rules with an unknown phenomenon keyword are rejected")
+    public void reloadUnknownKeywordTest() throws IOException {
+        Files.writeString(rulesFile, defaultRules.replace("\"rain\"", "\"drizzle\""));
+
+        assertThat(feeRulesService.reload()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Checks that an unmodified rules file is not reloaded")
+    public void reloadIfNotModifiedTest() {
+        CompiledFeeRules previous = feeRulesService.getRules();
+
+        feeRulesService.reloadIfModified();
+
+        assertThat(feeRulesService.getRules()).isSameAs(previous);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("Checks that invalid rules are rejected and the current rules are kept")
+    public void reloadInvalidRulesTest() throws IOException {
+        CompiledFeeRules previous = feeRulesService.getRules();
+        Files.writeString(rulesFile, defaultRules.replace("\"CAR\": \"4.00\", ", ""));
+
+        assertThat(feeRulesService.reload()).isFalse();
+        Files.writeString(rulesFile, "{");
+        assertThat(feeRulesService.reload()).isFalse();
+        Files.writeString(rulesFile, defaultRules.replace("\"CAR\": \"4.00\"", "\"CAR\": \"6000000.00\""));
+        assertThat(feeRulesService.reload()).isFalse();
+
+        assertThat(feeRulesService.getRules()).isSameAs(previous);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
@@ -0,0 +1,219 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeBatchProperties;
+import ee.karu.deliveryfeeservice.config.FeeCacheProperties;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
+import ee.karu.deliveryfeeservice.config.FeeStreamProperties;
+import ee.karu.deliveryfeeservice.controller.FeeController;
+import ee.karu.deliveryfeeservice.event.FeeMatrixRebuiltEvent;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@ExtendWith(MockitoExtension.class)
+public class FeeStreamServiceTest {
+
+    private static final CompiledFeeRules DEFAULT_RULES = new FeeRulesService(
+            new FeeRulesProperties(new ClassPathResource("fee-rules.json")), new ObjectMapper(), event -> {
+    }).getRules();
+    private static final Pattern EVENT = Pattern.compile("event:fees");
+
+    @Mock
+    private FeeCalculationService feeCalculationService;
+    private FeeStreamService feeStreamService;
+    private MockMvc mockMvc;
+    private final Queue<Runnable> sends = new ArrayDeque<>();
+    private boolean sendImmediately = true;
+
+    @BeforeEach
+    public void init() {
+        when(feeCalculationService.getFeeMatrix())
+                .thenReturn(feeMatrix(City.TARTU, -2.1, 4.7, "Light snow shower", 1));
+        feeStreamService = new FeeStreamService(feeCalculationService, new ObjectMapper(),
+                new FeeStreamProperties(Duration.ofMinutes(1), Duration.ofSeconds(15)), task -> {
+            if (sendImmediately) {
+                task.run();
+            } else {
+                sends.add(task);
+            }
+        });
+        mockMvc = MockMvcBuilders.standaloneSetup(new FeeController(feeCalculationService, feeStreamService,
+                        new FeeMetrics(new SimpleMeterRegistry()), new FeeCacheProperties(Duration.ofSeconds(60)), new FeeBatchProperties(1000)))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Test checks that the current fee table is sent on subscribe")
+    public void subscribeTest() throws Exception {
+        MockHttpServletResponse response = subscribe(City.TARTU);
+
+        assertThat(events(response)).isEqualTo(1);
+        assertThat(response.getContentAsString())
+                .contains("\"city\":\"TARTU\"")
+                .contains("\"vehicleType\":\"BIKE\",\"fee\":4.00");
+        assertThat(feeStreamService.getSubscriberCount(City.TARTU)).isEqualTo(1);
+        assertThat(feeStreamService.getSubscriberCount(City.TALLINN)).isZero();
+    }
+
+    @Test
+    @DisplayName("Test checks that a rebuilt fee matrix is sent only when a fee outcome of the city changes")
+    public void deduplicateTest() throws Exception {
+        MockHttpServletResponse tartu = subscribe(City.TARTU);
+        MockHttpServletResponse tallinn = subscribe(City.TALLINN);
+
+        feeStreamService.onFeeMatrixRebuilt(new FeeMatrixRebuiltEvent(
+                feeMatrix(City.TARTU, -3.5, 5.1, "Moderate snow shower", 2)));
+        assertThat(events(tartu)).isEqualTo(1);
+
+        feeStreamService.onFeeMatrixRebuilt(new FeeMatrixRebuiltEvent(
+                feeMatrix(City.TARTU, 5, 5.1, "Moderate snow shower", 3)));
+        assertThat(events(tartu)).isEqualTo(2);
+        assertThat(tartu.getContentAsString()).contains("\"vehicleType\":\"SCOOTER\",\"fee\":4.00");
+        assertThat(events(tallinn)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test checks that forbidden outcomes are streamed with their reason")
+    public void forbiddenTest() throws Exception {
+        MockHttpServletResponse response = subscribe(City.TARTU);
+
+        feeStreamService.onFeeMatrixRebuilt(new FeeMatrixRebuiltEvent(
+                feeMatrix(City.TARTU, 5, 25, "Clear", 2)));
+
+        assertThat(events(response)).isEqualTo(2);
+        assertThat(response.getContentAsString()).contains("\"status\":409");
+    }
+
+    @Test
+    @DisplayName("Test checks that the rebuild listener returns before the events are written to the subscribers")
+    public void sendAsynchronouslyTest() throws Exception {
+        MockHttpServletResponse response = subscribe(City.TARTU);
+        sendImmediately = false;
+
+        feeStreamService.onFeeMatrixRebuilt(new FeeMatrixRebuiltEvent(
+                feeMatrix(City.TARTU, 5, 25, "Clear", 2)));
+        assertThat(events(response)).isEqualTo(1);
+        assertThat(sends).hasSize(1);
+
+        runSends();
+        assertThat(events(response)).isEqualTo(2);
+        assertThat(response.getContentAsString()).contains("\"status\":409");
+    }
+
+    @Test
+    @DisplayName("Test checks that a subscriber that falls behind receives only the latest fee table")
+    public void sendLatestTest() throws Exception {
+        MockHttpServletResponse response = subscribe(City.TARTU);
+        sendImmediately = false;
+
+        feeStreamService.onFeeMatrixRebuilt(new FeeMatrixRebuiltEvent(
+                feeMatrix(City.TARTU, 5, 25, "Clear", 2)));
+        feeStreamService.sendHeartbeat();
+        feeStreamService.onFeeMatrixRebuilt(new FeeMatrixRebuiltEvent(
+                feeMatrix(City.TARTU, 5, 5.1, "Clear", 3)));
+        runSends();
+
+        assertThat(events(response)).isEqualTo(2);
+        assertThat(response.getContentAsString())
+                .doesNotContain("\"status\":409")
+                .doesNotContain("heartbeat")
+                .contains("\"vehicleType\":\"SCOOTER\",\"fee\":3.00");
+    }
+
+    @Test
+    @DisplayName("Test checks that subscribers joining during rebuilds end on the latest fee table")
+    public void subscribeDuringRebuildsTest() throws Exception {
+        int subscriptions = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?> rebuilds = executor.submit(() -> {
+                for (int i = 2; i < 500; i++) {
+                    feeStreamService.onFeeMatrixRebuilt(new FeeMatrixRebuiltEvent(
+                            feeMatrix(City.TARTU, i % 2 == 0 ? 5 : -5, 5.1, "Clear", i)));
+                }
+            });
+            List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < subscriptions; i++) {
+                responses.add(executor.submit(() -> subscribe(City.TARTU)));
+            }
+            rebuilds.get(10, TimeUnit.SECONDS);
+            feeStreamService.onFeeMatrixRebuilt(new FeeMatrixRebuiltEvent(
+                    feeMatrix(City.TARTU, 5, 25, "Clear", 500)));
+
+            for (Future<MockHttpServletResponse> response : responses) {
+                String content = response.get(10, TimeUnit.SECONDS).getContentAsString();
+                assertThat(content.substring(content.lastIndexOf("event:fees"))).contains("\"status\":409");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runSends() {
+        Runnable send;
+        while ((send = sends.poll()) != null) {
+            send.run();
+        }
+    }
+
+    private MockHttpServletResponse subscribe(City city) throws Exception {
+        return mockMvc.perform(get("/api/v1/fees/stream")
+                        .param("city", city.name())
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static int events(MockHttpServletResponse response) throws Exception {
+        Matcher matcher = EVENT.matcher(response.getContentAsString());
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static FeeMatrix feeMatrix(City city, double airTemperature, double windSpeed, String phenomenon, long timestamp) {
+        StationEntity station = StationEntity.builder()
+                .city(city)
+                .airTemperature(airTemperature)
+                .windSpeed(windSpeed)
+                .phenomenon(phenomenon)
+                .timestamp(timestamp)
+                .build();
+        return FeeMatrix.of(ObservationSnapshot.of(List.of(station), Instant.now()), DEFAULT_RULES);
+    }
+}
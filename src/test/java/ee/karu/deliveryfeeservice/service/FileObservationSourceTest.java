@@ -0,0 +1,112 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.ObservationSourceProperties;
+import ee.karu.deliveryfeeservice.config.StationRegistryProperties;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileObservationSourceTest {
+
+    private static final long TIMESTAMP = 1710162302;
+
+    @TempDir
+    private Path directory;
+    private String observations;
+    private FileObservationSource fileObservationSource;
+
+    @BeforeEach
+    public void init() throws IOException {
+        try (InputStream inputStream = getClass().getResourceAsStream("/observations.xml")) {
+            observations = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        write("observations-1.xml", TIMESTAMP, 1);
+    }
+
+    @AfterEach
+    public void stop() throws IOException {
+        fileObservationSource.close();
+    }
+
+    @Test
+    @DisplayName("Checks that the newest document in the directory is imported once")
+    public void fetchExistingTest() throws IOException {
+        write("observations-2.xml", TIMESTAMP + 3600, 2);
+        fileObservationSource = createSource();
+
+        Optional<List<StationEntity>> fetched = fileObservationSource.fetch();
+
+        assertThat(fetched).isPresent();
+        assertThat(fetched.get())
+                .extracting(StationEntity::getCity)
+                .containsExactlyInAnyOrder(City.TALLINN, City.TARTU, City.PÄRNU);
+        assertThat(fetched.get())
+                .extracting(StationEntity::getTimestamp)
+                .containsOnly(TIMESTAMP + 3600);
+
+        fileObservationSource.onImported();
+
+        assertThat(fileObservationSource.fetch()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Checks that a document that was fetched but not imported is fetched again")
+    public void fetchNotImportedTest() {
+        fileObservationSource = createSource();
+
+        assertThat(fileObservationSource.fetch()).isPresent();
+        assertThat(fileObservationSource.fetch()).isPresent();
+    }
+
+    @Test
+    @DisplayName("Checks that a document written to the watched directory is imported")
+    public void fetchWrittenTest() throws Exception {
+        fileObservationSource = createSource();
+        fileObservationSource.fetch();
+        fileObservationSource.onImported();
+
+        write("observations-2.xml", TIMESTAMP + 3600, 2);
+
+        Optional<List<StationEntity>> fetched = Optional.empty();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (fetched.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            fetched = fileObservationSource.fetch();
+        }
+        assertThat(fetched).isPresent();
+        assertThat(fetched.get())
+                .extracting(StationEntity::getTimestamp)
+                .containsOnly(TIMESTAMP + 3600);
+    }
+
+    private FileObservationSource createSource() {
+        return new FileObservationSource(new ObservationSourceProperties("file", directory, 1, false),
+                new ObservationParser(new StationRegistry(new StationRegistryProperties(new ClassPathResource("stations.json")), new ObjectMapper())), new WeatherDataMetrics(new SimpleMeterRegistry()));
+    }
+
+    private void write(String name, long timestamp, int modifiedSeconds) throws IOException {
+        Path path = directory.resolve(name);
+        Files.writeString(path, observations.replace("timestamp=\"" + TIMESTAMP + "\"", "timestamp=\"" + timestamp + "\""));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + modifiedSeconds * 1000L));
+    }
+}
@@ -0,0 +1,64 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ObservationChangeDetectorTest {
+
+    private final ObservationChangeDetector observationChangeDetector = new ObservationChangeDetector();
+
+    @ParameterizedTest(name = "{index}: observation at {0} with phenomenon={1}, air temperature={2} and wind speed={3}" +
+            " newer={4}")
+    @CsvSource(textBlock = """
+                10, Clear, -5.3, 2.2, false
+                10, Mist, -5.3, 2.2, false
+                 9, Mist, 1.0, 1.0, false
+                11, Clear, -5.3, 2.2, true
+                11, Mist, -5.3, 2.2, true
+                11, , -5.3, 2.2, true
+            """)
+    @DisplayName("Checks that newer observations are kept also if they report the same weather")
+    public void newerTest(long timestamp, String phenomenon, double airTemperature, double windSpeed, boolean newer) {
+        observationChangeDetector.stored(List.of(createStationEntity(City.TALLINN, 26038L, 10L, "Clear", -5.3, 2.2)));
+        StationEntity fetched = createStationEntity(City.TALLINN, 26038L, timestamp, phenomenon, airTemperature, windSpeed);
+
+        assertThat(observationChangeDetector.newer(List.of(fetched), List.of()))
+                .hasSize(newer ? 1 : 0);
+    }
+
+    @Test
+    @DisplayName("Checks that stations are compared with their own last stored observation and seeded from the snapshot")
+    public void newerPerStationTest() {
+        StationEntity tallinn = createStationEntity(City.TALLINN, 26038L, 10L, "Clear", -5.3, 2.2);
+        StationEntity tartu = createStationEntity(City.TARTU, 26242L, 10L, "Clear", -5.3, 2.2);
+        StationEntity pärnu = createStationEntity(City.PÄRNU, 41803L, 10L, "Clear", -5.3, 2.2);
+
+        assertThat(observationChangeDetector.newer(List.of(tallinn, tartu, pärnu), List.of(tallinn)))
+                .containsExactly(tartu, pärnu);
+
+        observationChangeDetector.stored(List.of(tartu));
+
+        assertThat(observationChangeDetector.newer(List.of(tallinn, tartu, pärnu), List.of()))
+                .containsExactly(pärnu);
+    }
+
+    private static StationEntity createStationEntity(City city, long wmoCode, long timestamp, String phenomenon,
+                                                     double airTemperature, double windSpeed) {
+        return StationEntity.builder()
+                .city(city)
+                .wmoCode(wmoCode)
+                .timestamp(timestamp)
+                .phenomenon(phenomenon)
+                .airTemperature(airTemperature)
+                .windSpeed(windSpeed)
+                .build();
+    }
+}
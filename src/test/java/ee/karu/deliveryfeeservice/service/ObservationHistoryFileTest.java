@@ -0,0 +1,103 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.config.ObservationHistoryProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.PhenomenonKeyword;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ObservationHistoryFileTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Checks that exported observations are read back sorted by city and timestamp with classified phenomena")
+    public void writeAndReadTest() {
+        ObservationHistoryFile observationHistoryFile = createFile(directory.resolve("history/observation-history.bin"));
+        observationHistoryFile.write(List.of(
+                createStationEntity(City.TARTU, "Light snow shower", -2.1, 1710162302),
+                createStationEntity(City.TALLINN, null, 3.5, 1710165902),
+                createStationEntity(City.TARTU, "Glaze", -0.5, 1710158702),
+                createStationEntity(City.TALLINN, "Light snow shower", 4.0, 1710162302)));
+
+        List<StationEntity> stations = observationHistoryFile.read();
+
+        assertThat(stations)
+                .extracting(StationEntity::getId, StationEntity::getCity, StationEntity::getPhenomenon,
+                        StationEntity::getPhenomenonFlags, StationEntity::getAirTemperature, StationEntity::getTimestamp)
+                .containsExactly(
+                        tuple(null, City.TALLINN, "Light snow shower", PhenomenonKeyword.SNOW.mask(), 4.0, 1710162302L),
+                        tuple(null, City.TALLINN, null, 0, 3.5, 1710165902L),
+                        tuple(null, City.TARTU, "Glaze", PhenomenonKeyword.GLAZE.mask(), -0.5, 1710158702L),
+                        tuple(null, City.TARTU, "Light snow shower", PhenomenonKeyword.SNOW.mask(), -2.1, 1710162302L));
+        assertThat(stations.get(0).getPhenomenon()).isSameAs(stations.get(3).getPhenomenon());
+        assertThat(stations).allSatisfy(station -> {
+            assertThat(station.getWmoCode()).isEqualTo(26038);
+            assertThat(station.getWindSpeed()).isEqualTo(2.2);
+        });
+    }
+
+    @Test
+    @DisplayName("Checks that hourly observations take little more than the fixed width columns")
+    public void encodeSizeTest() {
+        List<StationEntity> stations = IntStream.range(0, 1000)
+                .mapToObj(hour -> createStationEntity(City.values()[hour % 3], "Light snow shower", 1.0, 1710162302L + 3600L * hour))
+                .toList();
+
+        ByteBuffer encoded = ObservationHistoryFile.encode(stations);
+
+        assertThat(encoded.remaining()).isLessThan(1000 * (2 + 2 + 8 + 8 + 8 + 3) + 100);
+        assertThat(ObservationHistoryFile.decode(encoded))
+                .hasSize(1000)
+                .isSortedAccordingTo(Comparator.comparing(StationEntity::getCity).thenComparingLong(StationEntity::getTimestamp));
+    }
+
+    @Test
+    @DisplayName("Checks that a missing, truncated or foreign history file is read as an empty history")
+    public void readUnavailableTest() throws IOException {
+        Path file = directory.resolve("observation-history.bin");
+
+        assertThat(createFile(file).read()).isEmpty();
+
+        ByteBuffer encoded = ObservationHistoryFile.encode(List.of(createStationEntity(City.TARTU, "Glaze", 1.0, 1710162302)));
+        byte[] bytes = Arrays.copyOf(encoded.array(), encoded.limit() - 2);
+        Files.write(file, bytes);
+
+        assertThat(createFile(file).read()).isEmpty();
+
+        Files.writeString(file, "[{\"city\":");
+
+        assertThat(createFile(file).read()).isEmpty();
+        assertThat(createFile(null).read()).isEmpty();
+    }
+
+    private static ObservationHistoryFile createFile(Path file) {
+        return new ObservationHistoryFile(new ObservationHistoryProperties(file, "-"));
+    }
+
+    private static StationEntity createStationEntity(City city, String phenomenon, double airTemperature, long timestamp) {
+        return StationEntity.builder()
+                .city(city)
+                .wmoCode(26038)
+                .phenomenon(phenomenon)
+                .airTemperature(airTemperature)
+                .windSpeed(2.2)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,184 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.event.ObservationSnapshotPublishedEvent;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ObservationHistoryServiceTest {
+
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private ObservationHistoryFile observationHistoryFile;
+    private ObservationHistoryService observationHistoryService;
+
+    @BeforeEach
+    public void init() {
+        when(stationRepository.findByCityOrderByCityAscTimestampAsc(any()))
+                .thenReturn(List.of());
+        when(stationRepository.findByCityOrderByCityAscTimestampAsc(City.TARTU))
+                .thenReturn(List.of(createStationEntity(City.TARTU, 1000), createStationEntity(City.TARTU, 2000),
+                        createStationEntity(City.TARTU, 3000)));
+        observationHistoryService = new ObservationHistoryService(stationRepository, observationHistoryFile);
+        observationHistoryService.load();
+    }
+
+    @ParameterizedTest(name = "{index}: finds observation at {0} made at {1} ")
+    @CsvSource(textBlock = """
+                1000, 1000
+                1999, 1000
+                2000, 2000
+                2500, 2000
+                9999, 3000
+            """)
+    @DisplayName("Checks that the latest observation made at or before the instant is found")
+    public void getStationAtTest(long at, long timestamp) {
+        assertThat(observationHistoryService.getStationAt(City.TARTU, Instant.ofEpochSecond(at)))
+                .hasValueSatisfying(station -> assertThat(station.getTimestamp()).isEqualTo(timestamp));
+    }
+
+    @Test
+    @DisplayName("Checks that there is no observation before the first one or for a city without observations")
+    public void getStationAtNoDataTest() {
+        assertThat(observationHistoryService.getStationAt(City.TARTU, Instant.ofEpochSecond(999))).isEmpty();
+        assertThat(observationHistoryService.getStationAt(City.TALLINN, Instant.ofEpochSecond(2000))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Checks that the observation in force is queried from the database until the history is loaded")
+    public void getStationAtBeforeLoadTest() {
+        ObservationHistoryService notLoaded = new ObservationHistoryService(stationRepository, observationHistoryFile);
+        when(stationRepository.getFirstByCityAndTimestampLessThanEqualOrderByCityAscTimestampDesc(City.TARTU, 2500))
+                .thenReturn(Optional.of(createStationEntity(City.TARTU, 2000)));
+        notLoaded.onObservationSnapshotPublished(new ObservationSnapshotPublishedEvent(
+                ObservationSnapshot.of(List.of(createStationEntity(City.TARTU, 3000)), Instant.now())));
+
+        assertThat(notLoaded.getStationAt(City.TARTU, Instant.ofEpochSecond(2500)))
+                .hasValueSatisfying(station -> assertThat(station.getTimestamp()).isEqualTo(2000));
+        assertThat(observationHistoryService.getStationAt(City.TARTU, Instant.ofEpochSecond(2500)))
+                .hasValueSatisfying(station -> assertThat(station.getTimestamp()).isEqualTo(2000));
+        verify(stationRepository).getFirstByCityAndTimestampLessThanEqualOrderByCityAscTimestampDesc(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Checks that published observations are appended and already indexed ones are ignored")
+    public void onObservationSnapshotPublishedTest() {
+        LongStream.rangeClosed(4, 100).forEach(i -> publish(
+                createStationEntity(City.TARTU, i * 1000),
+                createStationEntity(City.TALLINN, i * 1000)));
+        publish(createStationEntity(City.TARTU, 100_000), createStationEntity(City.TALLINN, 1500));
+
+        assertThat(observationHistoryService.size()).isEqualTo(3 + 97 + 98);
+        assertThat(observationHistoryService.getStationAt(City.TARTU, Instant.ofEpochSecond(50_500)))
+                .hasValueSatisfying(station -> assertThat(station.getTimestamp()).isEqualTo(50_000));
+        assertThat(observationHistoryService.getStationAt(City.TALLINN, Instant.ofEpochSecond(1999)))
+                .hasValueSatisfying(station -> assertThat(station.getTimestamp()).isEqualTo(1500));
+    }
+
+    @Test
+    @DisplayName("Checks that observations older than the retention cutoff are removed")
+    public void removeOlderThanTest() {
+        observationHistoryService.removeOlderThan(2000);
+
+        assertThat(observationHistoryService.size()).isEqualTo(2);
+        assertThat(observationHistoryService.getStationAt(City.TARTU, Instant.ofEpochSecond(1500))).isEmpty();
+        assertThat(observationHistoryService.getStationAt(City.TARTU, Instant.ofEpochSecond(2500))).isPresent();
+    }
+
+    @Test
+    @DisplayName("Checks that the exported history is loaded and only newer observations are queried from the database")
+    public void loadExportedTest() {
+        when(observationHistoryFile.read())
+                .thenReturn(List.of(createStationEntity(City.TARTU, 1000), createStationEntity(City.TARTU, 2000),
+                        createStationEntity(City.PÄRNU, 1500)));
+        when(stationRepository.findByCityAndTimestampGreaterThanOrderByCityAscTimestampAsc(City.TARTU, 2000))
+                .thenReturn(List.of(createStationEntity(City.TARTU, 3000)));
+        when(stationRepository.findByCityAndTimestampGreaterThanOrderByCityAscTimestampAsc(City.PÄRNU, 1500))
+                .thenReturn(List.of());
+        ObservationHistoryService exportedHistoryService = new ObservationHistoryService(stationRepository, observationHistoryFile);
+        clearInvocations(stationRepository);
+
+        exportedHistoryService.load();
+
+        assertThat(exportedHistoryService.size()).isEqualTo(4);
+        assertThat(exportedHistoryService.getStationAt(City.TARTU, Instant.ofEpochSecond(3500)))
+                .hasValueSatisfying(station -> assertThat(station.getTimestamp()).isEqualTo(3000));
+        assertThat(exportedHistoryService.getStationAt(City.PÄRNU, Instant.ofEpochSecond(1500))).isPresent();
+        verify(stationRepository, never()).findByCityOrderByCityAscTimestampAsc(City.PÄRNU);
+    }
+
+    @Test
+    @DisplayName("Checks that observations published before the load do not replace the stored history")
+    public void loadAfterPublishedTest() {
+        when(observationHistoryFile.read())
+                .thenReturn(List.of(createStationEntity(City.PÄRNU, 1500)));
+        when(stationRepository.findByCityAndTimestampGreaterThanOrderByCityAscTimestampAsc(City.PÄRNU, 1500))
+                .thenReturn(List.of(createStationEntity(City.PÄRNU, 2500), createStationEntity(City.PÄRNU, 3500)));
+        ObservationHistoryService publishedHistoryService = new ObservationHistoryService(stationRepository, observationHistoryFile);
+        publishedHistoryService.onObservationSnapshotPublished(new ObservationSnapshotPublishedEvent(ObservationSnapshot.of(
+                List.of(createStationEntity(City.TARTU, 3000), createStationEntity(City.PÄRNU, 3500)), Instant.now())));
+
+        publishedHistoryService.load();
+
+        assertThat(publishedHistoryService.size()).isEqualTo(3 + 3);
+        assertThat(publishedHistoryService.getStationAt(City.TARTU, Instant.ofEpochSecond(1500)))
+                .hasValueSatisfying(station -> assertThat(station.getTimestamp()).isEqualTo(1000));
+        assertThat(publishedHistoryService.getStationAt(City.PÄRNU, Instant.ofEpochSecond(3000)))
+                .hasValueSatisfying(station -> assertThat(station.getTimestamp()).isEqualTo(2500));
+    }
+
+    @Test
+    @DisplayName("Checks that the loaded history is exported")
+    public void exportTest() {
+        publish(createStationEntity(City.TALLINN, 1500));
+
+        observationHistoryService.export();
+
+        verify(observationHistoryFile).write(argThat(stations -> stations.size() == 4));
+    }
+
+    @Test
+    @DisplayName("Checks that nothing is exported before the history is loaded")
+    public void exportNotLoadedTest() {
+        new ObservationHistoryService(stationRepository, observationHistoryFile).export();
+
+        verify(observationHistoryFile, never()).write(any());
+    }
+
+    private void publish(StationEntity... stations) {
+        observationHistoryService.onObservationSnapshotPublished(
+                new ObservationSnapshotPublishedEvent(ObservationSnapshot.of(List.of(stations), Instant.now())));
+    }
+
+    private static StationEntity createStationEntity(City city, long timestamp) {
+        return StationEntity.builder()
+                .city(city)
+                .timestamp(timestamp)
+                .build();
+    }
+}
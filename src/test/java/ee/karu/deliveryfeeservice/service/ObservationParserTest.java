@@ -0,0 +1,115 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.StationRegistryProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ObservationParserTest {
+
+    private final ObservationParser observationParser = new ObservationParser(new StationRegistry(new StationRegistryProperties(new ClassPathResource("stations.json")), new ObjectMapper()));
+
+    @Test
+    @DisplayName("Checks that only tracked stations are parsed from the recorded observations")
+    public void parseRecordedObservationsTest() throws Exception {
+        List<StationEntity> stationEntities;
+        try (InputStream inputStream = getClass().getResourceAsStream("/observations.xml")) {
+            stationEntities = observationParser.parse(inputStream);
+        }
+
+        assertThat(stationEntities)
+                .extracting(StationEntity::getCity, StationEntity::getWmoCode, StationEntity::getPhenomenon,
+                        StationEntity::getAirTemperature, StationEntity::getWindSpeed, StationEntity::getTimestamp)
+                .containsExactly(
+                        tuple(City.TALLINN, 26038L, "Light snow shower", -5.3, 2.2, 1710162302L),
+                        tuple(City.PÄRNU, 41803L, "Overcast", -1.1, 3.8, 1710162302L),
+                        tuple(City.TARTU, 26242L, "Moderate rain", 2.8, 11.7, 1710162302L)
+                );
+    }
+
+    @Test
+    @DisplayName("Checks that empty elements are parsed as defaults")
+    public void parseEmptyElementsTest() throws XMLStreamException {
+        String xml = """
+                <observations timestamp="5">
+                  <station>
+                    <name>Pärnu</name>
+                    <wmocode/>
+                    <phenomenon/>
+                    <airtemperature/>
+                    <windspeed>4.2</windspeed>
+                  </station>
+                </observations>
+                """;
+
+        assertThat(observationParser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))))
+                .singleElement()
+                .satisfies(station -> {
+                    assertThat(station.getCity()).isEqualTo(City.PÄRNU);
+                    assertThat(station.getWmoCode()).isZero();
+                    assertThat(station.getPhenomenon()).isEmpty();
+                    assertThat(station.getAirTemperature()).isZero();
+                    assertThat(station.getWindSpeed()).isEqualTo(4.2);
+                    assertThat(station.getTimestamp()).isEqualTo(5L);
+                });
+    }
+
+    @Test
+    @DisplayName("Checks that nested elements of untracked stations are skipped")
+    public void parseSkipsUntrackedStationsTest() throws XMLStreamException {
+        String xml = """
+                <observations timestamp="7">
+                  <station>
+                    <name>Kuressaare linn</name>
+                    <extra><nested>1</nested></extra>
+                    <phenomenon>Hail</phenomenon>
+                  </station>
+                  <station>
+                    <name>Tallinn-Harku</name>
+                    <extra><nested>1</nested></extra>
+                    <phenomenon>Clear</phenomenon>
+                  </station>
+                </observations>
+                """;
+
+        assertThat(observationParser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))))
+                .extracting(StationEntity::getCity, StationEntity::getPhenomenon)
+                .containsExactly(tuple(City.TALLINN, "Clear"));
+    }
+
+    @Test
+    @DisplayName("Checks that a renamed station is matched by its WMO code and untracked codes are skipped")
+    public void parseMatchesWmoCodeTest() throws XMLStreamException {
+        String xml = """
+                <observations timestamp="9">
+                  <station>
+                    <name>Tartu-Tõravere automaat</name>
+                    <wmocode>26242</wmocode>
+                    <phenomenon>Mist</phenomenon>
+                  </station>
+                  <station>
+                    <name>Viljandi</name>
+                    <wmocode>26233</wmocode>
+                    <extra><nested>1</nested></extra>
+                    <phenomenon>Hail</phenomenon>
+                  </station>
+                </observations>
+                """;
+
+        assertThat(observationParser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))))
+                .extracting(StationEntity::getCity, StationEntity::getWmoCode, StationEntity::getPhenomenon)
+                .containsExactly(tuple(City.TARTU, 26242L, "Mist"));
+    }
+}
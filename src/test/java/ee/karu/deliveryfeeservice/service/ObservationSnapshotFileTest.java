@@ -0,0 +1,92 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.ObservationSnapshotProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.PhenomenonKeyword;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ObservationSnapshotFileTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Checks that a written snapshot is read back with classified phenomena")
+    public void writeAndReadTest() {
+        ObservationSnapshotFile observationSnapshotFile = createFile(directory.resolve("snapshot/observation-snapshot.json"));
+        observationSnapshotFile.write(ObservationSnapshot.of(List.of(
+                createStationEntity(City.TARTU, "Light snow shower", 1710162302),
+                createStationEntity(City.PÄRNU, "Glaze", 1710162302)
+        ), Instant.now()));
+
+        List<StationEntity> stations = observationSnapshotFile.read();
+
+        assertThat(stations)
+                .extracting(StationEntity::getCity, StationEntity::getTimestamp, StationEntity::getPhenomenonFlags)
+                .containsExactlyInAnyOrder(
+                        tuple(City.TARTU, 1710162302L, PhenomenonKeyword.SNOW.mask()),
+                        tuple(City.PÄRNU, 1710162302L, PhenomenonKeyword.GLAZE.mask()));
+    }
+
+    @Test
+    @DisplayName("Checks that snapshots written in the background keep the newest observation of every city")
+    public void writeLaterTest() throws InterruptedException {
+        ObservationSnapshotFile observationSnapshotFile = createFile(directory.resolve("observation-snapshot.json"));
+        ObservationSnapshot older = ObservationSnapshot.of(List.of(
+                createStationEntity(City.TARTU, "Light snow shower", 1710162302)
+        ), Instant.now());
+        ObservationSnapshot newer = older.merge(List.of(
+                createStationEntity(City.TARTU, "Glaze", 1710163202),
+                createStationEntity(City.PÄRNU, "Glaze", 1710163202)
+        ), Instant.now());
+
+        observationSnapshotFile.writeLater(newer);
+        observationSnapshotFile.writeLater(older);
+        observationSnapshotFile.close();
+
+        assertThat(observationSnapshotFile.read())
+                .extracting(StationEntity::getCity, StationEntity::getTimestamp)
+                .containsExactlyInAnyOrder(
+                        tuple(City.TARTU, 1710163202L),
+                        tuple(City.PÄRNU, 1710163202L));
+    }
+
+    @Test
+    @DisplayName("Checks that a missing or corrupt snapshot file is read as an empty snapshot")
+    public void readUnavailableTest() throws IOException {
+        Path file = directory.resolve("observation-snapshot.json");
+
+        assertThat(createFile(file).read()).isEmpty();
+
+        Files.writeString(file, "[{\"city\":");
+
+        assertThat(createFile(file).read()).isEmpty();
+        assertThat(createFile(null).read()).isEmpty();
+    }
+
+    private static ObservationSnapshotFile createFile(Path file) {
+        return new ObservationSnapshotFile(new ObservationSnapshotProperties(file), new ObjectMapper());
+    }
+
+    private static StationEntity createStationEntity(City city, String phenomenon, long timestamp) {
+        return StationEntity.builder()
+                .city(city)
+                .phenomenon(phenomenon)
+                .timestamp(timestamp)
+                .build();
+    }
+}
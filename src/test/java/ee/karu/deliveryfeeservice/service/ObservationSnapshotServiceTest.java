@@ -0,0 +1,199 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.FeeRulesProperties;
+import ee.karu.deliveryfeeservice.event.ObservationSnapshotPublishedEvent;
+import ee.karu.deliveryfeeservice.metrics.FeeMetrics;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.FeeQuote;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ObservationSnapshotServiceTest {
+
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ObservationSnapshotFile observationSnapshotFile;
+    private ObservationSnapshotService observationSnapshotService;
+
+    @BeforeEach
+    public void init() {
+        observationSnapshotService = new ObservationSnapshotService(stationRepository, eventPublisher,
+                new WeatherDataMetrics(new SimpleMeterRegistry()), observationSnapshotFile);
+    }
+
+    @Test
+    @DisplayName("Checks that the snapshot is warmed up with the latest station of every city")
+    public void warmUpTest() {
+        when(stationRepository.getFirstByCityOrderByTimestampDesc(any()))
+                .thenReturn(Optional.empty());
+        when(stationRepository.getFirstByCityOrderByTimestampDesc(City.TARTU))
+                .thenReturn(Optional.of(createStationEntity(City.TARTU, 2L)));
+
+        observationSnapshotService.warmUp();
+
+        assertThat(observationSnapshotService.getSnapshot().getStations())
+                .containsOnlyKeys(City.TARTU);
+    }
+
+    @Test
+    @DisplayName("Checks that publishing replaces older observations and keeps other cities")
+    public void publishTest() {
+        observationSnapshotService.publish(List.of(
+                createStationEntity(City.TARTU, 1L),
+                createStationEntity(City.TALLINN, 1L)
+        ));
+        observationSnapshotService.publish(List.of(
+                createStationEntity(City.TARTU, 2L),
+                createStationEntity(City.TALLINN, 0L)
+        ));
+
+        assertThat(observationSnapshotService.getSnapshot().getStation(City.TARTU))
+                .get()
+                .extracting(StationEntity::getTimestamp)
+                .isEqualTo(2L);
+        assertThat(observationSnapshotService.getSnapshot().getStation(City.TALLINN))
+                .get()
+                .extracting(StationEntity::getTimestamp)
+                .isEqualTo(1L);
+        verify(observationSnapshotFile).writeLater(observationSnapshotService.getSnapshot());
+    }
+
+    @Test
+    @DisplayName("Checks that a miss during the warm-up does not join the lookup of an observation not yet published")
+    public void loadLatestStationDuringWarmUpTest() {
+        City[] cities = City.values();
+        City first = cities[0];
+        City last = cities[cities.length - 1];
+        AtomicReference<Optional<StationEntity>> loaded = new AtomicReference<>();
+        when(stationRepository.getFirstByCityOrderByTimestampDesc(any()))
+                .thenAnswer(invocation -> Optional.of(createStationEntity(invocation.getArgument(0), 1L)));
+        when(stationRepository.getFirstByCityOrderByTimestampDesc(last))
+                .thenAnswer(invocation -> {
+                    loaded.set(observationSnapshotService.loadLatestStation(first));
+                    return Optional.of(createStationEntity(last, 1L));
+                });
+
+        observationSnapshotService.warmUp();
+
+        assertThat(loaded.get()).isPresent();
+        assertThat(observationSnapshotService.loadLatestStation(first)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Checks that published snapshot is not affected by later changes of the entities")
+    public void publishCopiesEntitiesTest() {
+        StationEntity station = createStationEntity(City.PÄRNU, 1L);
+        observationSnapshotService.publish(List.of(station));
+
+        station.setTimestamp(5L);
+
+        assertThat(observationSnapshotService.getSnapshot().getStation(City.PÄRNU))
+                .get()
+                .extracting(StationEntity::getTimestamp)
+                .isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Checks that 1000 concurrent fee requests on a cold snapshot query the database once per city")
+    public void coalescedFeeLookupTest() throws Exception {
+        int requests = 1000;
+        CountDownLatch requested = new CountDownLatch(requests);
+        when(stationRepository.getFirstByCityOrderByTimestampDesc(any()))
+                .thenAnswer(invocation -> {
+                    requested.await(10, TimeUnit.SECONDS);
+                    return Optional.of(createStationEntity(invocation.getArgument(0), 1L));
+                });
+        AtomicReference<FeeCalculationServiceImpl> feeCalculationService = new AtomicReference<>();
+        ObservationSnapshotService snapshotService = new ObservationSnapshotService(stationRepository,
+                event -> feeCalculationService.get().onObservationSnapshotPublished((ObservationSnapshotPublishedEvent) event),
+                new WeatherDataMetrics(new SimpleMeterRegistry()), observationSnapshotFile);
+        feeCalculationService.set(new FeeCalculationServiceImpl(snapshotService, new FeeRulesService(
+                new FeeRulesProperties(new ClassPathResource("fee-rules.json")), new ObjectMapper(), event -> {
+        }), null, new FeeMetrics(new SimpleMeterRegistry()), event -> {
+        }));
+        City[] cities = City.values();
+
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<FeeQuote>> quotes = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                City city = cities[i % cities.length];
+                quotes.add(executor.submit(() -> {
+                    requested.countDown();
+                    return feeCalculationService.get().quoteFee(city, VehicleType.CAR);
+                }));
+            }
+            for (Future<FeeQuote> quote : quotes) {
+                assertThat(quote.get(10, TimeUnit.SECONDS)).isInstanceOf(FeeQuote.Fee.class);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (City city : cities) {
+            verify(stationRepository, times(1)).getFirstByCityOrderByTimestampDesc(city);
+        }
+    }
+
+    @Test
+    @DisplayName("Checks that a found observation is looked up once, and a city without observations or a failed lookup is retried")
+    public void loadLatestStationTest() {
+        when(stationRepository.getFirstByCityOrderByTimestampDesc(City.TARTU))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(createStationEntity(City.TARTU, 2L)));
+        when(stationRepository.getFirstByCityOrderByTimestampDesc(City.PÄRNU))
+                .thenThrow(new DataAccessResourceFailureException("Database is not available"))
+                .thenReturn(Optional.of(createStationEntity(City.PÄRNU, 3L)));
+
+        assertThat(observationSnapshotService.loadLatestStation(City.TARTU)).isEmpty();
+        assertThat(observationSnapshotService.loadLatestStation(City.TARTU)).isPresent();
+        assertThat(observationSnapshotService.loadLatestStation(City.TARTU)).isPresent();
+        assertThat(observationSnapshotService.loadLatestStation(City.PÄRNU)).isEmpty();
+        assertThat(observationSnapshotService.loadLatestStation(City.PÄRNU)).isPresent();
+        assertThat(observationSnapshotService.loadLatestStation(City.PÄRNU)).isPresent();
+
+        verify(stationRepository, times(2)).getFirstByCityOrderByTimestampDesc(City.TARTU);
+        verify(stationRepository, times(2)).getFirstByCityOrderByTimestampDesc(City.PÄRNU);
+        assertThat(observationSnapshotService.getSnapshot().getStation(City.PÄRNU)).isPresent();
+    }
+
+    private static StationEntity createStationEntity(City city, long timestamp) {
+        return StationEntity.builder()
+                .city(city)
+                .timestamp(timestamp)
+                .build();
+    }
+}
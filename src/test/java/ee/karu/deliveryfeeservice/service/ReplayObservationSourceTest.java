@@ -0,0 +1,95 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.ObservationSourceProperties;
+import ee.karu.deliveryfeeservice.config.StationRegistryProperties;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplayObservationSourceTest {
+
+    private static final long TIMESTAMP = 1710162302;
+    private static final long SECOND = 1_000_000_000L;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    public void init() throws IOException {
+        String observations;
+        try (InputStream inputStream = getClass().getResourceAsStream("/observations.xml")) {
+            observations = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        for (int hour = 0; hour < 3; hour++) {
+            Files.writeString(directory.resolve("observations-" + hour + ".xml"), observations.replace(
+                    "timestamp=\"" + TIMESTAMP + "\"", "timestamp=\"" + (TIMESTAMP + hour * 3600L) + "\""));
+        }
+    }
+
+    @ParameterizedTest(name = "{index}: replays the observation of timestamp offset={1} after {0} seconds at 1000x speed ")
+    @CsvSource(textBlock = """
+                0, 0
+                3.5, 0
+                3.6, 3600
+                8, 7200
+                10.8, 10800
+                15, 14400
+            """)
+    @DisplayName("Test checks that the observation in force at the accelerated replay clock is fetched")
+    public void fetchTest(double elapsedSeconds, long timestampOffset) {
+        ReplayObservationSource source = createSource(true);
+
+        assertThat(timestamps(source.fetch((long) (elapsedSeconds * SECOND))))
+                .containsOnly(TIMESTAMP + timestampOffset);
+    }
+
+    @Test
+    @DisplayName("Test checks that an imported observation is not fetched again until the replay clock reaches the next one")
+    public void fetchImportedTest() {
+        ReplayObservationSource source = createSource(true);
+
+        Optional<List<StationEntity>> first = source.fetch(0);
+        source.onImported();
+
+        assertThat(first.get()).allMatch(station -> station.getId() == null);
+        assertThat(source.fetch(SECOND)).isEmpty();
+        assertThat(timestamps(source.fetch(4 * SECOND))).containsOnly(TIMESTAMP + 3600);
+    }
+
+    @Test
+    @DisplayName("Test checks that without looping the replay stops at the last recorded observation")
+    public void fetchWithoutLoopTest() {
+        ReplayObservationSource source = createSource(false);
+
+        assertThat(timestamps(source.fetch(60 * SECOND))).containsOnly(TIMESTAMP + 7200);
+        source.onImported();
+        assertThat(source.fetch(120 * SECOND)).isEmpty();
+    }
+
+    private ReplayObservationSource createSource(boolean loop) {
+        return new ReplayObservationSource(new ObservationSourceProperties("replay", directory, 1000, loop), new ObservationParser(new StationRegistry(new StationRegistryProperties(new ClassPathResource("stations.json")), new ObjectMapper())));
+    }
+
+    private static List<Long> timestamps(Optional<List<StationEntity>> fetched) {
+        assertThat(fetched).isPresent();
+        return fetched.get().stream()
+                .map(StationEntity::getTimestamp)
+                .toList();
+    }
+}
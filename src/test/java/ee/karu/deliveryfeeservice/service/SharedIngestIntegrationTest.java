@@ -0,0 +1,108 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.sun.net.httpserver.HttpServer;
+import ee.karu.deliveryfeeservice.DeliveryFeeServiceApplication;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.model.VehicleType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two instances sharing one database in process and checks that only the ingest leader fetches observations
+ * while the other instance serves the same fees from the shared snapshot.
+ */
+public class SharedIngestIntegrationTest {
+
+    @TempDir
+    private Path directory;
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @BeforeEach
+    public void init() throws IOException {
+        byte[] observations;
+        try (InputStream inputStream = getClass().getResourceAsStream("/observations.xml")) {
+            observations = inputStream.readAllBytes();
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/observations.php", exchange -> {
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(200, observations.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(observations);
+            }
+        });
+        server.start();
+        first = start("first");
+        second = start("second");
+    }
+
+    @AfterEach
+    public void stop() {
+        second.close();
+        first.close();
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Checks that only the ingest leader fetches and the other instance refreshes from the shared snapshot")
+    public void sharedIngestTest() {
+        first.getBean(WeatherDataService.class).getData();
+        second.getBean(WeatherDataService.class).getData();
+
+        assertThat(requests.get()).isEqualTo(1);
+        assertThat(first.getBean(IngestLeaderService.class).isLeader()).isTrue();
+        assertThat(second.getBean(IngestLeaderService.class).isLeader()).isFalse();
+
+        second.getBean(SharedSnapshotService.class).refresh();
+
+        assertThat(timestamps(second)).isEqualTo(timestamps(first));
+        for (City city : City.values()) {
+            for (VehicleType vehicleType : VehicleType.values()) {
+                assertThat(second.getBean(FeeCalculationService.class).quoteFee(city, vehicleType))
+                        .as("%s %s", city, vehicleType)
+                        .isEqualTo(first.getBean(FeeCalculationService.class).quoteFee(city, vehicleType));
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(String instanceId) {
+        return new SpringApplicationBuilder(DeliveryFeeServiceApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--internal.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:shared-ingest;DB_CLOSE_DELAY=-1",
+                        "--weather.url=http://localhost:%d/observations.php".formatted(server.getAddress().getPort()),
+                        "--observation.snapshot.file=" + directory.resolve(instanceId + ".json"),
+                        "--observation.history.file=" + directory.resolve(instanceId + ".bin"),
+                        "--ingest.instance-id=" + instanceId,
+                        "--ingest.refresh-interval=PT1H",
+                        "--cronjob.frequency=-",
+                        "--retention.frequency=-",
+                        "--logging.level.root=WARN");
+    }
+
+    private static Map<City, Long> timestamps(ConfigurableApplicationContext context) {
+        return context.getBean(ObservationSnapshotService.class).getSnapshot().getStations().values().stream()
+                .collect(Collectors.toMap(StationEntity::getCity, StationEntity::getTimestamp));
+    }
+}
@@ -0,0 +1,117 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.SharedSnapshotEntity;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.repository.SharedSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SharedSnapshotServiceTest {
+
+    @Mock
+    private SharedSnapshotRepository sharedSnapshotRepository;
+    @Mock
+    private ObservationSnapshotService observationSnapshotService;
+    @Mock
+    private IngestLeaderService ingestLeaderService;
+    private SharedSnapshotService sharedSnapshotService;
+
+    @BeforeEach
+    public void init() {
+        sharedSnapshotService = new SharedSnapshotService(sharedSnapshotRepository, observationSnapshotService, ingestLeaderService);
+    }
+
+    @Test
+    @DisplayName("Checks that stations are decoded as they were encoded")
+    public void encodeDecodeTest() {
+        List<StationEntity> stations = List.of(
+                createStationEntity(City.TALLINN, "Light snow shower", 1000),
+                createStationEntity(City.PÄRNU, null, 2000));
+
+        assertThat(SharedSnapshotService.decode(SharedSnapshotService.encode(stations)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(stations);
+    }
+
+    @Test
+    @DisplayName("Checks that every shared snapshot gets a higher version, also when no observation timestamp grows")
+    public void shareTest() {
+        when(sharedSnapshotRepository.findVersion(SharedSnapshotService.SNAPSHOT_NAME))
+                .thenReturn(Optional.of(5L));
+        ObservationSnapshot snapshot = ObservationSnapshot.of(List.of(
+                createStationEntity(City.TALLINN, "Clear", 1000),
+                createStationEntity(City.TARTU, "Clear", 2000)), Instant.now());
+
+        sharedSnapshotService.share(snapshot);
+        sharedSnapshotService.share(snapshot.merge(List.of(createStationEntity(City.TALLINN, "Light rain", 1500)), Instant.now()));
+
+        ArgumentCaptor<SharedSnapshotEntity> captor = ArgumentCaptor.forClass(SharedSnapshotEntity.class);
+        verify(sharedSnapshotRepository, times(2)).save(captor.capture());
+        assertThat(captor.getAllValues())
+                .extracting(SharedSnapshotEntity::getVersion)
+                .containsExactly(6L, 7L);
+        assertThat(SharedSnapshotService.decode(captor.getValue().getData()))
+                .extracting(StationEntity::getCity, StationEntity::getTimestamp)
+                .containsExactlyInAnyOrder(tuple(City.TALLINN, 1500L), tuple(City.TARTU, 2000L));
+    }
+
+    @Test
+    @DisplayName("Checks that a follower publishes a newer shared snapshot once")
+    public void refreshTest() {
+        List<StationEntity> stations = List.of(createStationEntity(City.TARTU, "Light rain", 3000));
+        when(sharedSnapshotRepository.findVersion(SharedSnapshotService.SNAPSHOT_NAME))
+                .thenReturn(Optional.of(3000L));
+        when(sharedSnapshotRepository.findById(SharedSnapshotService.SNAPSHOT_NAME))
+                .thenReturn(Optional.of(new SharedSnapshotEntity(SharedSnapshotService.SNAPSHOT_NAME, 3000,
+                        SharedSnapshotService.encode(stations))));
+
+        sharedSnapshotService.refresh();
+        sharedSnapshotService.refresh();
+
+        verify(observationSnapshotService).publish(anyList());
+    }
+
+    @Test
+    @DisplayName("Checks that the ingest leader does not refresh from the shared snapshot")
+    public void refreshLeaderTest() {
+        when(ingestLeaderService.isLeader())
+                .thenReturn(true);
+
+        sharedSnapshotService.refresh();
+
+        verify(sharedSnapshotRepository, never()).findVersion(any());
+        verify(observationSnapshotService, never()).publish(anyList());
+    }
+
+    private static StationEntity createStationEntity(City city, String phenomenon, long timestamp) {
+        return StationEntity.builder()
+                .city(city)
+                .wmoCode(26038)
+                .phenomenon(phenomenon)
+                .airTemperature(-2.1)
+                .windSpeed(4.7)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.StationRegistryProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StationRegistryTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private final StationRegistry stationRegistry = new StationRegistry(
+            new StationRegistryProperties(new ClassPathResource("stations.json")), new ObjectMapper());
+
+    @Test
+    @DisplayName("Checks that the default registry tracks one station of every built-in city")
+    public void defaultRegistryTest() {
+        assertThat(stationRegistry.getCities()).containsExactly(City.TALLINN, City.TARTU, City.PÄRNU);
+        assertThat(stationRegistry.findByStationName("Tallinn-Harku")).contains(City.TALLINN);
+        assertThat(stationRegistry.findByStationName("Kuressaare linn")).isEmpty();
+        assertThat(stationRegistry.findByStationName(null)).isEmpty();
+        assertThat(stationRegistry.findByWmoCode(41803)).contains(City.PÄRNU);
+        assertThat(stationRegistry.findByWmoCode(26233)).isEmpty();
+    }
+
+    @ParameterizedTest(name = "{index}: finds city {1} by name \"{0}\"")
+    @CsvSource(textBlock = """
+                TALLINN,    TALLINN
+                tartu,      TARTU
+                ' Pärnu ',  PÄRNU
+                Viljandi,
+                '',
+            """)
+    public void findCityTest(String name, String expected) {
+        assertThat(stationRegistry.findCity(name).map(City::name)).isEqualTo(Optional.ofNullable(expected));
+    }
+
+    @Test
+    @DisplayName("Checks that stations added to the registry file are tracked for their city")
+    public void additionalStationTest() throws IOException {
+        StationRegistry registry = load("""
+                [
+                  {"name": "TALLINN", "id": 0, "stations": [{"name": "Tallinn-Harku", "wmoCode": 26038}]},
+                  {"name": "TARTU", "id": 1, "stations": [
+                    {"name": "Tartu-Tõravere", "wmoCode": 26242},
+                    {"name": "Tartu linn"}
+                  ]}
+                ]
+                """);
+
+        assertThat(registry.getCities()).containsExactly(City.TALLINN, City.TARTU);
+        assertThat(registry.findByStationName("Tartu linn")).contains(City.TARTU);
+        assertThat(registry.findByWmoCode(26242)).contains(City.TARTU);
+        assertThat(registry.findByStationName("Pärnu")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Checks that a station listed for two cities fails the registry")
+    public void duplicateStationTest() {
+        assertThatThrownBy(() -> load("""
+                [
+                  {"name": "TALLINN", "id": 0, "stations": [{"name": "Tallinn-Harku", "wmoCode": 26038}]},
+                  {"name": "TARTU", "id": 1, "stations": [{"name": "Tallinn-Harku", "wmoCode": 26242}]}
+                ]
+                """))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Tallinn-Harku");
+    }
+
+    @Test
+    @DisplayName("Checks that a city registered with the id of another city fails the registry")
+    public void conflictingIdTest() {
+        assertThatThrownBy(() -> load("""
+                [{"name": "TARTU", "id": 0, "stations": []}]
+                """))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("already registered");
+        assertThat(City.TARTU.id()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Checks that a new city fails the registry once the city registry is frozen")
+    public void frozenTest() {
+        assertThatThrownBy(() -> load("""
+                [{"name": "VILJANDI", "id": 3, "stations": [{"name": "Viljandi", "wmoCode": 26233}]}]
+                """))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("VILJANDI");
+        assertThat(City.find("VILJANDI")).isEmpty();
+        assertThat(City.findById(3)).isEmpty();
+    }
+
+    private StationRegistry load(String json) throws IOException {
+        Path file = tempDir.resolve("stations.json");
+        Files.writeString(file, json);
+        return new StationRegistry(new StationRegistryProperties(new FileSystemResource(file)), new ObjectMapper());
+    }
+}
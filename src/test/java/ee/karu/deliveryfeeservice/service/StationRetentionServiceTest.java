@@ -0,0 +1,92 @@
+package ee.karu.deliveryfeeservice.service;
+
+import ee.karu.deliveryfeeservice.config.RetentionProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StationRetentionServiceTest {
+
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private ObservationSnapshotService observationSnapshotService;
+    @Mock
+    private ObservationHistoryService observationHistoryService;
+    @Mock
+    private IngestLeaderService ingestLeaderService;
+    private StationRetentionService stationRetentionService;
+
+    @BeforeEach
+    public void init() {
+        stationRetentionService = new StationRetentionService(stationRepository, observationSnapshotService, observationHistoryService,
+                new RetentionProperties(Duration.ofDays(30), 100), ingestLeaderService);
+    }
+
+    @Test
+    @DisplayName("Checks that expired observations are deleted in batches until a batch is not full")
+    public void deleteExpiredObservationsTest() {
+        when(observationSnapshotService.getSnapshot())
+                .thenReturn(ObservationSnapshot.EMPTY);
+        when(ingestLeaderService.tryAcquire())
+                .thenReturn(true);
+        when(stationRepository.deleteOlderThan(anyLong(), eq(100)))
+                .thenReturn(100, 100, 42);
+
+        assertThat(stationRetentionService.deleteExpiredObservations()).isEqualTo(242);
+        verify(stationRepository, times(3)).deleteOlderThan(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Checks that the latest observation of every city is kept even if it is older than the horizon")
+    public void deleteExpiredObservationsKeepsLatestTest() {
+        long oldTimestamp = Instant.now().minus(Duration.ofDays(100)).getEpochSecond();
+        StationEntity station = StationEntity.builder()
+                .city(City.TARTU)
+                .timestamp(oldTimestamp)
+                .build();
+        when(observationSnapshotService.getSnapshot())
+                .thenReturn(ObservationSnapshot.of(List.of(station), Instant.now()));
+        when(ingestLeaderService.tryAcquire())
+                .thenReturn(true);
+        when(stationRepository.deleteOlderThan(oldTimestamp, 100))
+                .thenReturn(0);
+
+        assertThat(stationRetentionService.deleteExpiredObservations()).isZero();
+        verify(observationHistoryService).removeOlderThan(oldTimestamp);
+    }
+
+    @Test
+    @DisplayName("Checks that only the ingest leader deletes from the table and other instances only trim their history")
+    public void deleteExpiredObservationsNotLeaderTest() {
+        when(observationSnapshotService.getSnapshot())
+                .thenReturn(ObservationSnapshot.EMPTY);
+        when(ingestLeaderService.tryAcquire())
+                .thenReturn(false);
+
+        assertThat(stationRetentionService.deleteExpiredObservations()).isZero();
+        verify(stationRepository, never()).deleteOlderThan(anyLong(), anyInt());
+        verify(observationHistoryService).removeOlderThan(anyLong());
+    }
+}
@@ -0,0 +1,170 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ee.karu.deliveryfeeservice.config.RestConfiguration;
+import ee.karu.deliveryfeeservice.config.StationRegistryProperties;
+import ee.karu.deliveryfeeservice.config.WeatherProperties;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the weather import against a local HTTP server with the real RestClient configuration.
+ */
+@ExtendWith(MockitoExtension.class)
+public class WeatherDataServiceStubServerTest {
+
+    private static final String ENTITY_TAG = "\"observations-1710162302\"";
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(500);
+
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private ObservationSnapshotService observationSnapshotService;
+    @Mock
+    private IngestLeaderService ingestLeaderService;
+    @Mock
+    private SharedSnapshotService sharedSnapshotService;
+    private HttpServer server;
+    private final Queue<Consumer<HttpExchange>> responses = new ConcurrentLinkedQueue<>();
+    private final List<String> receivedEntityTags = new CopyOnWriteArrayList<>();
+    private WeatherDataService weatherDataService;
+    private byte[] observations;
+
+    @BeforeEach
+    public void init() throws IOException {
+        try (InputStream inputStream = getClass().getResourceAsStream("/observations.xml")) {
+            observations = inputStream.readAllBytes();
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/observations.php", exchange -> {
+            receivedEntityTags.add(String.valueOf(exchange.getRequestHeaders().getFirst("If-None-Match")));
+            responses.remove().accept(exchange);
+            exchange.close();
+        });
+        server.start();
+
+        WeatherProperties weatherProperties = new WeatherProperties(
+                "http://localhost:%d/observations.php".formatted(server.getAddress().getPort()),
+                Duration.ofMillis(500), READ_TIMEOUT,
+                new WeatherProperties.Retry(3, Duration.ofMillis(10), Duration.ofMillis(50)));
+        WeatherDataMetrics weatherDataMetrics = new WeatherDataMetrics(new SimpleMeterRegistry());
+        weatherDataService = new WeatherDataService(new HttpObservationSource(weatherProperties,
+                new RestConfiguration().restClient(weatherProperties), new ObservationParser(new StationRegistry(new StationRegistryProperties(new ClassPathResource("stations.json")), new ObjectMapper())), weatherDataMetrics),
+                stationRepository, observationSnapshotService, weatherDataMetrics, ingestLeaderService, sharedSnapshotService,
+                new ObservationChangeDetector());
+        when(ingestLeaderService.tryAcquire())
+                .thenReturn(true);
+    }
+
+    @AfterEach
+    public void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Checks that an unchanged document is requested conditionally and not imported again")
+    public void getDataNotModifiedTest() {
+        responses.add(exchange -> respond(exchange, 200, observations));
+        responses.add(exchange -> respond(exchange, 304, null));
+        when(stationRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(observationSnapshotService.getSnapshot())
+                .thenReturn(ObservationSnapshot.EMPTY);
+
+        weatherDataService.getData();
+        weatherDataService.getData();
+
+        assertThat(receivedEntityTags).containsExactly("null", ENTITY_TAG);
+        verify(stationRepository, times(1)).saveAll(anyList());
+        verify(observationSnapshotService, times(1)).publish(anyList());
+    }
+
+    @Test
+    @DisplayName("Checks that server errors are retried")
+    public void getDataRetriesServerErrorsTest() {
+        responses.add(exchange -> respond(exchange, 503, null));
+        responses.add(exchange -> respond(exchange, 502, null));
+        responses.add(exchange -> respond(exchange, 200, observations));
+        when(stationRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(observationSnapshotService.getSnapshot())
+                .thenReturn(ObservationSnapshot.EMPTY);
+
+        weatherDataService.getData();
+
+        assertThat(receivedEntityTags).hasSize(3);
+        verify(stationRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Checks that a slow response is bounded by the read timeout and retries")
+    public void getDataTimeoutTest() {
+        for (int i = 0; i < 3; i++) {
+            responses.add(exchange -> {
+                sleep(READ_TIMEOUT.multipliedBy(3));
+                respond(exchange, 200, observations);
+            });
+        }
+
+        long start = System.nanoTime();
+        assertThatExceptionOfType(ResourceAccessException.class)
+                .isThrownBy(() -> weatherDataService.getData());
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(READ_TIMEOUT.multipliedBy(3 * 2));
+        verify(stationRepository, never()).saveAll(anyList());
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) {
+        try {
+            exchange.getResponseHeaders().set("ETag", ENTITY_TAG);
+            exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+            if (body != null) {
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            }
+        } catch (IOException e) {
+            // The client has given up waiting for the response
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
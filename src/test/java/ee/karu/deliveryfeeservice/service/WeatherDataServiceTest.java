@@ -0,0 +1,128 @@
+package ee.karu.deliveryfeeservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.config.StationRegistryProperties;
+import ee.karu.deliveryfeeservice.config.WeatherProperties;
+import ee.karu.deliveryfeeservice.metrics.WeatherDataMetrics;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.repository.StationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@ExtendWith(MockitoExtension.class)
+public class WeatherDataServiceTest {
+
+    private static final String URL = "https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php";
+
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private ObservationSnapshotService observationSnapshotService;
+    @Mock
+    private IngestLeaderService ingestLeaderService;
+    @Mock
+    private SharedSnapshotService sharedSnapshotService;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MockRestServiceServer server;
+    private WeatherDataService weatherDataService;
+
+    @BeforeEach
+    public void init() {
+        RestClient.Builder restClientBuilder = RestClient.builder();
+        server = MockRestServiceServer.bindTo(restClientBuilder).build();
+        WeatherProperties weatherProperties = new WeatherProperties(URL, Duration.ofSeconds(1), Duration.ofSeconds(1),
+                new WeatherProperties.Retry(1, Duration.ZERO, Duration.ZERO));
+        WeatherDataMetrics weatherDataMetrics = new WeatherDataMetrics(meterRegistry);
+        weatherDataService = new WeatherDataService(new HttpObservationSource(weatherProperties, restClientBuilder.build(),
+                new ObservationParser(new StationRegistry(new StationRegistryProperties(new ClassPathResource("stations.json")), new ObjectMapper())), weatherDataMetrics), stationRepository, observationSnapshotService, weatherDataMetrics,
+                ingestLeaderService, sharedSnapshotService, new ObservationChangeDetector());
+        when(ingestLeaderService.tryAcquire())
+                .thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("Checks that all tracked stations of an observation are saved at once and published")
+    @SuppressWarnings("unchecked")
+    public void getDataTest() {
+        server.expect(requestTo(URL))
+                .andRespond(withSuccess(new ClassPathResource("observations.xml"), MediaType.APPLICATION_XML));
+        when(stationRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(observationSnapshotService.getSnapshot())
+                .thenReturn(ObservationSnapshot.EMPTY);
+
+        weatherDataService.getData();
+
+        ArgumentCaptor<List<StationEntity>> savedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(stationRepository, times(1)).saveAll(savedCaptor.capture());
+        assertThat(savedCaptor.getValue())
+                .extracting(StationEntity::getCity)
+                .containsExactlyInAnyOrder(City.TALLINN, City.TARTU, City.PÄRNU);
+        verify(observationSnapshotService).publish(savedCaptor.getValue());
+        verify(sharedSnapshotService).share(any());
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("Checks that an unchanged observation is not saved or published again and the stages are timed")
+    public void getDataUnchangedTest() {
+        server.expect(ExpectedCount.twice(), requestTo(URL))
+                .andRespond(withSuccess(new ClassPathResource("observations.xml"), MediaType.APPLICATION_XML));
+        when(stationRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(observationSnapshotService.getSnapshot())
+                .thenReturn(ObservationSnapshot.EMPTY);
+
+        weatherDataService.getData();
+        weatherDataService.getData();
+
+        verify(stationRepository, times(1)).saveAll(anyList());
+        verify(observationSnapshotService, times(1)).publish(anyList());
+        verify(sharedSnapshotService, times(1)).share(any());
+        assertThat(meterRegistry.get("weather.ingest.stations.unchanged").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("weather.ingest.stage").tag("stage", "fetch").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("weather.ingest.stage").tag("stage", "dedupe").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("weather.ingest.stage").tag("stage", "persist").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("weather.ingest.stage").tag("stage", "publish").timer().count()).isEqualTo(1);
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("Checks that an instance which is not the ingest leader does not fetch observations")
+    public void getDataNotLeaderTest() {
+        when(ingestLeaderService.tryAcquire())
+                .thenReturn(false);
+
+        weatherDataService.getData();
+
+        verify(stationRepository, never()).saveAll(anyList());
+        verify(sharedSnapshotService, never()).share(any());
+        server.verify();
+    }
+}
@@ -0,0 +1,115 @@
+package ee.karu.deliveryfeeservice.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.karu.deliveryfeeservice.DeliveryFeeServiceApplication;
+import ee.karu.deliveryfeeservice.config.ObservationSnapshotProperties;
+import ee.karu.deliveryfeeservice.model.City;
+import ee.karu.deliveryfeeservice.model.ObservationSnapshot;
+import ee.karu.deliveryfeeservice.model.StationEntity;
+import ee.karu.deliveryfeeservice.service.ObservationSnapshotFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the time from launching the application to the first successful GET /api/v1/fees/calculate response.
+ * The application starts with a preloaded observation snapshot file and an in-memory database, so the fee is served
+ * from the snapshot while Hibernate is still initialized in the background.
+ * Excluded from the default build, run with {@code ./mvnw -Pstartup test}.
+ */
+@Tag("startup")
+public class FirstFeeStartupTest {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Measures the time to the first successful fee response")
+    public void timeToFirstFeeTest() throws Exception {
+        Path snapshotFile = directory.resolve("observation-snapshot.json");
+        new ObservationSnapshotFile(new ObservationSnapshotProperties(snapshotFile), new ObjectMapper())
+                .write(ObservationSnapshot.of(Arrays.stream(City.values())
+                        .map(city -> StationEntity.builder()
+                                .city(city)
+                                .phenomenon("Light snow shower")
+                                .airTemperature(-2.1)
+                                .windSpeed(4.7)
+                                .timestamp(Instant.now().getEpochSecond())
+                                .build())
+                        .toList(), Instant.now()));
+        int port = freePort();
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(
+                "http://localhost:" + port + "/api/v1/fees/calculate?city=TARTU&vehicleType=BIKE")).GET().build();
+        AtomicLong readyNanos = new AtomicLong();
+
+        long startNanos = System.nanoTime();
+        CompletableFuture<ConfigurableApplicationContext> context = CompletableFuture.supplyAsync(() ->
+                new SpringApplicationBuilder(DeliveryFeeServiceApplication.class)
+                        .listeners((ApplicationListener<ApplicationReadyEvent>) event -> readyNanos.set(System.nanoTime()))
+                        .run(
+                                "--server.port=" + port,
+                                "--internal.port=0",
+                                "--spring.datasource.url=jdbc:h2:mem:startup-test",
+                                "--observation.snapshot.file=" + snapshotFile,
+                                "--observation.history.file=" + directory.resolve("observation-history.bin"),
+                                "--cronjob.frequency=-",
+                                "--retention.frequency=-",
+                                "--logging.level.root=WARN"));
+        try {
+            HttpResponse<String> response = awaitFirstResponse(client, request, startNanos + TIMEOUT.toNanos());
+            long firstFeeNanos = System.nanoTime();
+
+            context.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            System.out.printf("First fee after %d ms, application ready after %d ms%n",
+                    TimeUnit.NANOSECONDS.toMillis(firstFeeNanos - startNanos),
+                    TimeUnit.NANOSECONDS.toMillis(readyNanos.get() - startNanos));
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.body()).isEqualTo("4.00");
+        } finally {
+            context.thenAccept(ConfigurableApplicationContext::close).get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static HttpResponse<String> awaitFirstResponse(HttpClient client, HttpRequest request, long deadlineNanos) throws Exception {
+        while (true) {
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (ConnectException e) {
+                if (System.nanoTime() > deadlineNanos) {
+                    throw e;
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}